@@ -0,0 +1,214 @@
+package fr.spse.gamepad_remapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conversions between axis and keys, on top of the mapping tables.
+ * <p>
+ * An axis bound to a key presses it once past the activation threshold, and releases it once back below
+ * the reset threshold, so a value hovering around a single threshold does not toggle the key.
+ * A key bound to an axis moves the axis to a given value while pressed.
+ * <p>
+ * Build it through {@link Builder}. Stored as primitive arrays, sorted by target.
+ */
+public final class AxisBindings {
+    /** Only the positive half of the axis presses the key */
+    public static final int POSITIVE = 1;
+    /** Only the negative half of the axis presses the key, Eg. the up direction of a stick */
+    public static final int NEGATIVE = -1;
+    /** Both halves of the axis press the key */
+    public static final int BOTH = 0;
+
+    public static final float DEFAULT_ACTIVATION_THRESHOLD = 0.6f;
+    public static final float DEFAULT_RESET_THRESHOLD = 0.4f;
+
+    public static final AxisBindings EMPTY = new Builder().build();
+
+    /* Axis to key bindings, sorted by key */
+    final int[] axisSources, axisDirections, keyTargets;
+    final float[] activationThresholds, resetThresholds;
+
+    /* Key to axis bindings, sorted by axis */
+    final int[] keySources, axisTargets;
+    final float[] axisValues;
+
+    private AxisBindings(Builder builder) {
+        List<AxisToKey> axisToKeys = new ArrayList<>(builder.axisToKeys);
+        sortByTarget(axisToKeys);
+        int count = axisToKeys.size();
+        axisSources = new int[count];
+        axisDirections = new int[count];
+        keyTargets = new int[count];
+        activationThresholds = new float[count];
+        resetThresholds = new float[count];
+        for (int i = 0; i < count; ++i) {
+            AxisToKey binding = axisToKeys.get(i);
+            axisSources[i] = binding.axis;
+            axisDirections[i] = binding.direction;
+            keyTargets[i] = binding.target;
+            activationThresholds[i] = binding.activationThreshold;
+            resetThresholds[i] = binding.resetThreshold;
+        }
+
+        List<KeyToAxis> keyToAxes = new ArrayList<>(builder.keyToAxes);
+        sortByTarget(keyToAxes);
+        count = keyToAxes.size();
+        keySources = new int[count];
+        axisTargets = new int[count];
+        axisValues = new float[count];
+        for (int i = 0; i < count; ++i) {
+            KeyToAxis binding = keyToAxes.get(i);
+            keySources[i] = binding.key;
+            axisTargets[i] = binding.target;
+            axisValues[i] = binding.value;
+        }
+    }
+
+    /**
+     * Stable sort, so bindings of the same target stay in the order they were added
+     */
+    private static <T extends Binding> void sortByTarget(List<T> bindings) {
+        for (int i = 1; i < bindings.size(); ++i) {
+            T binding = bindings.get(i);
+            int j = i - 1;
+            while (j >= 0 && bindings.get(j).target > binding.target) {
+                bindings.set(j + 1, bindings.get(j));
+                --j;
+            }
+            bindings.set(j + 1, binding);
+        }
+    }
+
+    boolean isEmpty() {
+        return axisSources.length == 0 && keySources.length == 0;
+    }
+
+    /**
+     * @return Whether the key drives an axis
+     */
+    boolean isKeyBound(int key) {
+        for (int source : keySources) {
+            if (source == key) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return Whether the axis presses a key
+     */
+    boolean isAxisBound(int axis) {
+        for (int source : axisSources) {
+            if (source == axis) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Add the axis mapped to keys by the motion map, unless they are bound already
+     *
+     * @return The bindings to evaluate, for the given motion map
+     */
+    AxisBindings withMotionMap(MappingTable motionMap) {
+        Builder builder = toBuilder();
+        for (int i = 0; i < motionMap.size(); ++i) {
+            int source = motionMap.sourceAt(i);
+            int target = motionMap.targetAt(i);
+            if (StateVector.axisSlot(target) != StateVector.NO_SLOT || isAxisBound(source)) continue;
+            builder.addAxisToKey(source, BOTH, target);
+        }
+        return builder.build();
+    }
+
+    Builder toBuilder() {
+        Builder builder = new Builder();
+        for (int i = 0; i < axisSources.length; ++i) {
+            builder.addAxisToKey(axisSources[i], axisDirections[i], keyTargets[i], activationThresholds[i], resetThresholds[i]);
+        }
+        for (int i = 0; i < keySources.length; ++i) {
+            builder.addKeyToAxis(keySources[i], axisTargets[i], axisValues[i]);
+        }
+        return builder;
+    }
+
+    private static class Binding {
+        final int target;
+
+        Binding(int target) {
+            this.target = target;
+        }
+    }
+
+    private static final class AxisToKey extends Binding {
+        final int axis, direction;
+        final float activationThreshold, resetThreshold;
+
+        AxisToKey(int axis, int direction, int key, float activationThreshold, float resetThreshold) {
+            super(key);
+            this.axis = axis;
+            this.direction = direction;
+            this.activationThreshold = activationThreshold;
+            this.resetThreshold = resetThreshold;
+        }
+    }
+
+    private static final class KeyToAxis extends Binding {
+        final int key;
+        final float value;
+
+        KeyToAxis(int key, int axis, float value) {
+            super(axis);
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    public static final class Builder {
+        private final List<AxisToKey> axisToKeys = new ArrayList<>();
+        private final List<KeyToAxis> keyToAxes = new ArrayList<>();
+
+        /**
+         * Same as {@link #addAxisToKey(int, int, int, float, float)}, with the default thresholds
+         */
+        public Builder addAxisToKey(int axis, int direction, int key) {
+            return addAxisToKey(axis, direction, key, DEFAULT_ACTIVATION_THRESHOLD, DEFAULT_RESET_THRESHOLD);
+        }
+
+        /**
+         * Press a key when the axis goes past a threshold. Several axis can press the same key.
+         *
+         * @param axis                The physical axis, see {@link GamepadCodes}
+         * @param direction           {@link #POSITIVE}, {@link #NEGATIVE} or {@link #BOTH}
+         * @param key                 The key to press
+         * @param activationThreshold The value from which the key gets pressed
+         * @param resetThreshold      The value under which the key gets released, at most the activation threshold
+         */
+        public Builder addAxisToKey(int axis, int direction, int key, float activationThreshold, float resetThreshold) {
+            if (direction != POSITIVE && direction != NEGATIVE && direction != BOTH) {
+                throw new IllegalArgumentException("Invalid direction: " + direction);
+            }
+            if (!(resetThreshold > 0 && resetThreshold <= activationThreshold && activationThreshold <= 1)) {
+                throw new IllegalArgumentException("Invalid thresholds: " + activationThreshold + ", " + resetThreshold);
+            }
+            axisToKeys.add(new AxisToKey(axis, direction, key, activationThreshold, resetThreshold));
+            return this;
+        }
+
+        /**
+         * Move an axis while a key is pressed. Values of the keys held at the same time add up.
+         *
+         * @param key   The physical key
+         * @param axis  The axis to move, see {@link GamepadCodes}
+         * @param value The value of the axis while the key is pressed, between -1 and 1
+         */
+        public Builder addKeyToAxis(int key, int axis, float value) {
+            if (!(value >= -1 && value <= 1)) throw new IllegalArgumentException("Invalid value: " + value);
+            keyToAxes.add(new KeyToAxis(key, axis, value));
+            return this;
+        }
+
+        public AxisBindings build() {
+            return new AxisBindings(this);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package fr.spse.gamepad_remapper;
+
+import static fr.spse.gamepad_remapper.GamepadCodes.SUPPORTED_AXIS;
+
+/**
+ * Resting state and range of each axis of a gamepad, learnt while it is left untouched.
+ * <p>
+ * Each calibrated axis is moved so it rests at 0 and scaled so its range spans [-1, 1].
+ * Axis resting near the bottom of their range, like triggers resting at -1, span [0, 1] instead.
+ * The noise measured at rest gives a deadzone, replacing the one declared by the device.
+ * Axis too noisy to be at rest are left uncalibrated.
+ * <p>
+ * Build it through {@link Builder}. Stored as primitive arrays, indexed by axis slot.
+ * Free of Android classes, like the {@link RemapperCore} using it. See {@link Remapper#setCalibrationRanges} for the ranges of a device.
+ */
+public final class AxisCalibration {
+    /** Samples needed for an axis to be calibrated */
+    public static final int MIN_SAMPLES = 10;
+    /** The deadzone covers this many standard deviations of the noise, at least */
+    static final float NOISE_SIGMAS = 4f;
+    /** Bounds of the deadzones computed from the noise */
+    static final float MIN_DEADZONE = 0.02f, MAX_DEADZONE = 0.5f;
+    /** Largest standard deviation of an axis at rest, above it is being moved */
+    static final float MAX_REST_NOISE = 0.05f;
+
+    public static final AxisCalibration NONE = new Builder().build();
+
+    /* Measured values, NaN centers for the axis not calibrated */
+    final float[] centers, noises, peaks, minimums, maximums;
+
+    /* Affine transform and output bounds, identity for the axis not calibrated */
+    final float[] scales, offsets, lowerBounds, upperBounds;
+    /* Deadzone of each axis, after the transform. NaN for the axis not calibrated */
+    final float[] deadzones;
+
+    /**
+     * @param centers  Mean value at rest, NaN if not calibrated
+     * @param noises   Standard deviation at rest
+     * @param peaks    Largest distance to the center at rest
+     * @param minimums Lowest value the axis can reach
+     * @param maximums Highest value the axis can reach
+     */
+    AxisCalibration(float[] centers, float[] noises, float[] peaks, float[] minimums, float[] maximums) {
+        this.centers = centers;
+        this.noises = noises;
+        this.peaks = peaks;
+        this.minimums = minimums;
+        this.maximums = maximums;
+
+        int count = StateVector.AXIS_SLOT_COUNT;
+        scales = new float[count];
+        offsets = new float[count];
+        lowerBounds = new float[count];
+        upperBounds = new float[count];
+        deadzones = new float[count];
+        for (int slot = 0; slot < count; ++slot) {
+            float center = centers[slot];
+            float span = maximums[slot] - minimums[slot];
+            if (Float.isNaN(center) || !(span > 0)) {
+                scales[slot] = 1;
+                lowerBounds[slot] = -Float.MAX_VALUE;
+                upperBounds[slot] = Float.MAX_VALUE;
+                deadzones[slot] = Float.NaN;
+                continue;
+            }
+
+            boolean isOneSided = center - minimums[slot] < span / 4;
+            scales[slot] = isOneSided ? 1 / (maximums[slot] - center) : 2 / span;
+            offsets[slot] = -center * scales[slot];
+            lowerBounds[slot] = isOneSided ? 0 : -1;
+            upperBounds[slot] = 1;
+
+            float deadzone = Math.max(NOISE_SIGMAS * noises[slot], peaks[slot]) * scales[slot];
+            deadzones[slot] = Math.max(MIN_DEADZONE, Math.min(MAX_DEADZONE, deadzone));
+        }
+    }
+
+    boolean isEmpty() {
+        for (float center : centers) {
+            if (!Float.isNaN(center)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return The calibrated value of the axis in the given slot
+     */
+    float apply(int slot, float value) {
+        return Math.max(lowerBounds[slot], Math.min(upperBounds[slot], value * scales[slot] + offsets[slot]));
+    }
+
+    /**
+     * @return Whether enough samples were taken at rest for the axis
+     */
+    public boolean isCalibrated(int axis) {
+        int slot = StateVector.axisSlot(axis);
+        return slot != StateVector.NO_SLOT && !Float.isNaN(centers[slot]);
+    }
+
+    /**
+     * @return The raw value of the axis at rest, NaN if not calibrated
+     */
+    public float getCenter(int axis) {
+        int slot = StateVector.axisSlot(axis);
+        return slot == StateVector.NO_SLOT ? Float.NaN : centers[slot];
+    }
+
+    /**
+     * @return The deadzone computed from the noise at rest, relative to the calibrated range. NaN if not calibrated
+     */
+    public float getDeadzone(int axis) {
+        int slot = StateVector.axisSlot(axis);
+        return slot == StateVector.NO_SLOT ? Float.NaN : deadzones[slot];
+    }
+
+    /**
+     * @param scale       The scale applied to the deadzones, see {@link Settings#setDeadzoneScale(float)}
+     * @param minDeadzone The smallest deadzone, so a quiet axis at rest does not drift once worn
+     * @return The deadzones of the device with the ones of the calibrated axis replaced, indexed by axis slot
+     */
+    float[] mergeDeadzones(float[] deviceDeadzones, float scale, float minDeadzone) {
+        float[] merged = deviceDeadzones.clone();
+        for (int slot = 0; slot < merged.length; ++slot) {
+            if (!Float.isNaN(deadzones[slot])) merged[slot] = Math.max(deadzones[slot] * scale, minDeadzone);
+        }
+        return merged;
+    }
+
+    /**
+     * Accumulates samples of the axis at rest, with streaming statistics.
+     * Ranges default to [-1, 1], as Android normalizes most axis.
+     */
+    public static final class Builder {
+        private final int[] counts = new int[StateVector.AXIS_SLOT_COUNT];
+        /* Welford's running mean and sum of squared differences */
+        private final double[] means = new double[StateVector.AXIS_SLOT_COUNT];
+        private final double[] squaredDifferences = new double[StateVector.AXIS_SLOT_COUNT];
+        private final float[] restMinimums = new float[StateVector.AXIS_SLOT_COUNT];
+        private final float[] restMaximums = new float[StateVector.AXIS_SLOT_COUNT];
+        private final float[] minimums = new float[StateVector.AXIS_SLOT_COUNT];
+        private final float[] maximums = new float[StateVector.AXIS_SLOT_COUNT];
+
+        public Builder() {
+            for (int slot = 0; slot < StateVector.AXIS_SLOT_COUNT; ++slot) {
+                minimums[slot] = -1;
+                maximums[slot] = 1;
+            }
+        }
+
+        /**
+         * Add a value of the axis at rest. Unsupported axis and NaN values are ignored.
+         */
+        public Builder addSample(int axis, float value) {
+            int slot = StateVector.axisSlot(axis);
+            if (slot == StateVector.NO_SLOT || Float.isNaN(value)) return this;
+
+            int count = ++counts[slot];
+            double delta = value - means[slot];
+            means[slot] += delta / count;
+            squaredDifferences[slot] += delta * (value - means[slot]);
+            restMinimums[slot] = count == 1 ? value : Math.min(restMinimums[slot], value);
+            restMaximums[slot] = count == 1 ? value : Math.max(restMaximums[slot], value);
+            return this;
+        }
+
+        /**
+         * Add a value for each supported axis, while the gamepad is at rest.
+         * Android only sends events when a value changes, so sample the last values reported at a regular interval.
+         *
+         * @param values The values, indexed like {@link GamepadCodes#SUPPORTED_AXIS}. NaN for the axis to skip.
+         */
+        public Builder addSamples(float[] values) {
+            for (int slot = 0; slot < values.length; ++slot) addSample(SUPPORTED_AXIS[slot], values[slot]);
+            return this;
+        }
+
+        /**
+         * Forget the samples added so far, the ranges are kept
+         */
+        public Builder clearSamples() {
+            for (int slot = 0; slot < StateVector.AXIS_SLOT_COUNT; ++slot) {
+                counts[slot] = 0;
+                means[slot] = 0;
+                squaredDifferences[slot] = 0;
+            }
+            return this;
+        }
+
+        /**
+         * @return The fewest samples added to an axis, among the ones sampled
+         */
+        public int getSampleCount() {
+            int sampleCount = 0;
+            for (int count : counts) {
+                if (count > 0 && (sampleCount == 0 || count < sampleCount)) sampleCount = count;
+            }
+            return sampleCount;
+        }
+
+        /**
+         * @return Whether all axis sampled are quiet enough to be at rest. Samples taken while moving should be cleared.
+         */
+        public boolean isAtRest() {
+            for (int slot = 0; slot < StateVector.AXIS_SLOT_COUNT; ++slot) {
+                if (counts[slot] > 1 && getNoise(slot) > MAX_REST_NOISE) return false;
+            }
+            return true;
+        }
+
+        private float getNoise(int slot) {
+            return (float) Math.sqrt(squaredDifferences[slot] / (counts[slot] - 1));
+        }
+
+        /**
+         * Set the range the axis can reach
+         */
+        public Builder setRange(int axis, float min, float max) {
+            if (!(min < max)) throw new IllegalArgumentException("Invalid range: " + min + ", " + max);
+            int slot = StateVector.axisSlot(axis);
+            if (slot == StateVector.NO_SLOT) throw new IllegalArgumentException("Unsupported axis: " + axis);
+            minimums[slot] = min;
+            maximums[slot] = max;
+            return this;
+        }
+
+        public AxisCalibration build() {
+            int count = StateVector.AXIS_SLOT_COUNT;
+            float[] centers = new float[count], noises = new float[count], peaks = new float[count];
+            for (int slot = 0; slot < count; ++slot) {
+                if (counts[slot] < MIN_SAMPLES || getNoise(slot) > MAX_REST_NOISE) {
+                    centers[slot] = Float.NaN;
+                    continue;
+                }
+                centers[slot] = (float) means[slot];
+                noises[slot] = getNoise(slot);
+                peaks[slot] = Math.max(restMaximums[slot] - centers[slot], centers[slot] - restMinimums[slot]);
+            }
+            return new AxisCalibration(centers, noises, peaks, minimums.clone(), maximums.clone());
+        }
+    }
+}
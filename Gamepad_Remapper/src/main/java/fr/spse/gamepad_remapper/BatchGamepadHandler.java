@@ -0,0 +1,23 @@
+package fr.spse.gamepad_remapper;
+
+
+/**
+ * Extension of the {@link GamepadHandler}, receiving all the changes of a MotionEvent at once,
+ * historical samples included.
+ * <p>
+ * Only used when historical samples are enabled, see {@link Remapper#setHistoricalSamplesEnabled(boolean)}.
+ * Otherwise, and for KeyEvents, inputs are still passed through {@link #handleGamepadInput(int, float)}.
+ */
+public interface BatchGamepadHandler extends GamepadHandler {
+
+    /**
+     * Function handling all the gamepad actions of a single MotionEvent, in chronological order.
+     * The arrays are reused between calls, they must not be kept.
+     *
+     * @param codes      Either a keycode, either an axis. See {@link #handleGamepadInput(int, float)}
+     * @param values     The value of each code. See {@link #handleGamepadInput(int, float)}
+     * @param timestamps The time of each sample in nanoseconds, in the {@link android.os.SystemClock#uptimeMillis()} time base.
+     * @param count      The amount of valid entries, the arrays may be larger.
+     */
+    void handleGamepadInputBatch(int[] codes, float[] values, long[] timestamps, int count);
+}
@@ -0,0 +1,141 @@
+package fr.spse.gamepad_remapper;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bundled profiles of known gamepads, per vendor and product id.
+ * <p>
+ * Compiled at build time from controllerdb/controllers.txt into an asset. Layout: a header with the amount of gamepads,
+ * an index of ids and record positions sorted by id, then the records made of the key and motion mappings.
+ * <p>
+ * Nothing is read until the first lookup, the asset is then read once. A lookup only decodes the record of the gamepad.
+ */
+final class ControllerDatabase {
+    static final String ASSET_NAME = "gamepad_remapper_controllers.bin";
+
+    private static final int MAGIC = 0x474D4344; // GMCD
+    private static final int VERSION = 1;
+    /* Magic, version, amount of gamepads */
+    private static final int HEADER_SIZE = 4 + 1 + 4;
+    /* Id, record position */
+    private static final int INDEX_ENTRY_SIZE = 4 + 4;
+
+    private static ControllerDatabase instance;
+
+    private final Context context;
+    /* Null until the first lookup */
+    private ByteBuffer data;
+    private int count;
+
+    private ControllerDatabase(Context context) {
+        this.context = context;
+    }
+
+    ControllerDatabase(ByteBuffer data) {
+        this.context = null;
+        load(data);
+    }
+
+    static synchronized ControllerDatabase get(Context context) {
+        if (instance == null) {
+            instance = new ControllerDatabase(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * @return The profile of the gamepad, or null if unknown
+     */
+    synchronized ProfileCodec.Profile find(int vendorId, int productId) {
+        if (data == null && !load(readAsset())) {
+            Log.e(ControllerDatabase.class.toString(), "Invalid controller database");
+        }
+        int id = (vendorId << 16) | (productId & 0xFFFF);
+
+        int low = 0, high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int entry = HEADER_SIZE + middle * INDEX_ENTRY_SIZE;
+            int entryId = data.getInt(entry);
+            if (entryId < id) {
+                low = middle + 1;
+            } else if (entryId > id) {
+                high = middle - 1;
+            } else {
+                try {
+                    return decodeRecord(data.getInt(entry + 4));
+                } catch (IndexOutOfBoundsException e) {
+                    return null; // Invalid record, the gamepad is considered unknown
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check the header, an invalid database is considered empty.
+     * Does not log, so parsing stays free of Android calls.
+     *
+     * @return Whether the database is valid
+     */
+    private boolean load(ByteBuffer buffer) {
+        data = buffer;
+        count = 0;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.get(4) != VERSION) return false;
+        int declaredCount = buffer.getInt(5);
+        // Truncated
+        if (declaredCount < 0 || HEADER_SIZE + (long) declaredCount * INDEX_ENTRY_SIZE > buffer.limit()) return false;
+        count = declaredCount;
+        return true;
+    }
+
+    private ProfileCodec.Profile decodeRecord(int position) {
+        ByteBuffer record = data.duplicate();
+        record.position(position);
+
+        Map<Integer, Integer> keyMap = decodeMappings(record);
+        // Dpad keys are seen as the HAT axis
+        keyMap.put(GamepadCodes.AXIS_HAT_X, GamepadCodes.AXIS_HAT_X);
+        keyMap.put(GamepadCodes.AXIS_HAT_Y, GamepadCodes.AXIS_HAT_Y);
+
+        ProfileCodec.Profile profile = new ProfileCodec.Profile();
+        profile.keyMap = MappingTable.from(keyMap);
+        profile.motionMap = MappingTable.from(decodeMappings(record));
+        return profile;
+    }
+
+    private static Map<Integer, Integer> decodeMappings(ByteBuffer record) {
+        int size = record.get() & 0xFF;
+        Map<Integer, Integer> map = new HashMap<>(size * 2);
+        for (int i = 0; i < size; ++i) {
+            map.put((int) record.getShort(), (int) record.getShort());
+        }
+        return map;
+    }
+
+    /**
+     * @return The content of the asset, empty if missing
+     */
+    private ByteBuffer readAsset() {
+        try (InputStream stream = context.getAssets().open(ASSET_NAME)) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return ByteBuffer.wrap(output.toByteArray());
+        } catch (IOException e) {
+            Log.e(ControllerDatabase.class.toString(), "Could not read the controller database: " + e.getMessage());
+            return ByteBuffer.allocate(0);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package fr.spse.gamepad_remapper;
+
+import static fr.spse.gamepad_remapper.Settings.SUPPORTED_AXIS;
+
+import android.util.Log;
+import android.util.SparseArray;
+import android.view.InputDevice;
+import android.view.MotionEvent;
+
+/**
+ * Deadzones of every supported axis, resolved once per input device.
+ * Querying the motion ranges goes through the system server, so it is kept off the per event path.
+ * <p>
+ * Only meant to be used from the input thread, except for {@link #invalidate()}
+ */
+final class DeadzoneCache {
+    /** Used when the device does not allow to query its motion ranges */
+    static final float FALLBACK_DEADZONE = 0.2f;
+
+    /* Bumped each time cached values become stale */
+    private static volatile int generation = 0;
+    /* Generation the cached deadzones have been computed with */
+    private static int cacheGeneration = 0;
+    /* Deadzones per device id, indexed by axis slot */
+    private static final SparseArray<float[]> deadzones = new SparseArray<>();
+
+    private DeadzoneCache() {
+    }
+
+    /**
+     * Drop all cached deadzones, they will be computed again on the next event.
+     * Safe to call from any thread.
+     */
+    static void invalidate() {
+        generation++;
+    }
+
+    static int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return The deadzones of the device which sent the event, indexed by axis slot
+     */
+    static float[] get(MotionEvent event) {
+        int currentGeneration = generation;
+        if (currentGeneration != cacheGeneration) {
+            deadzones.clear();
+            cacheGeneration = currentGeneration;
+        }
+
+        float[] deviceDeadzones = deadzones.get(event.getDeviceId());
+        if (deviceDeadzones == null) {
+            deviceDeadzones = compute(event.getDevice());
+            deadzones.put(event.getDeviceId(), deviceDeadzones);
+        }
+        return deviceDeadzones;
+    }
+
+    private static float[] compute(InputDevice device) {
+        float[] deviceDeadzones = new float[StateVector.AXIS_SLOT_COUNT];
+        float scale = Settings.getDeadzoneScale();
+        try {
+            for (int axis : SUPPORTED_AXIS) {
+                InputDevice.MotionRange range = device.getMotionRange(axis, InputDevice.SOURCE_JOYSTICK);
+                float deadzone = 0;
+                if (range != null) {
+                    deadzone = range.getFlat() * scale;
+                }
+                deviceDeadzones[StateVector.axisSlot(axis)] = Math.max(deadzone, Settings.DEADZONE_MIN * scale);
+            }
+        } catch (Exception e) {
+            Log.e(DeadzoneCache.class.toString(), "Dynamic Deadzone is not supported ");
+            for (int i = 0; i < deviceDeadzones.length; ++i) {
+                deviceDeadzones[i] = FALLBACK_DEADZONE;
+            }
+        }
+        return deviceDeadzones;
+    }
+}
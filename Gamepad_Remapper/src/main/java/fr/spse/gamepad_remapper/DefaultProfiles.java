@@ -0,0 +1,105 @@
+package fr.spse.gamepad_remapper;
+
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_BRAKE;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_GAS;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_HAT_X;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_HAT_Y;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_LTRIGGER;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_RTRIGGER;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_RX;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_RY;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_RZ;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_X;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_Y;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_Z;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_A;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_B;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_L1;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_L2;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_R1;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_R2;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_SELECT;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_START;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_THUMBL;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_THUMBR;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_X;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_Y;
+
+import android.view.InputDevice;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds a profile for gamepads never remapped, guessed from the axis they report.
+ * Assumes the gamepad follows the Android conventions, which most recent ones do.
+ */
+final class DefaultProfiles {
+    /* Buttons left untouched, the ones offered by the RemapperView */
+    private static final int[] STANDARD_BUTTONS = {
+            KEYCODE_BUTTON_A, KEYCODE_BUTTON_B, KEYCODE_BUTTON_X, KEYCODE_BUTTON_Y,
+            KEYCODE_BUTTON_START, KEYCODE_BUTTON_SELECT, KEYCODE_BUTTON_THUMBL, KEYCODE_BUTTON_THUMBR,
+            KEYCODE_BUTTON_L1, KEYCODE_BUTTON_R1
+    };
+
+    private DefaultProfiles() {
+    }
+
+    /**
+     * @return A remapper guessed from the axis the device reports
+     */
+    static Remapper create(InputDevice device) {
+        long axes = 0;
+        for (int axis : GamepadCodes.SUPPORTED_AXIS) {
+            if (device.getMotionRange(axis) != null) axes |= 1L << axis;
+        }
+        return new Remapper(guess(axes));
+    }
+
+    /**
+     * @param axes Bitset of the axis reported by the device
+     */
+    static ProfileCodec.Profile guess(long axes) {
+        Map<Integer, Integer> keyMap = new HashMap<>();
+        Map<Integer, Integer> motionMap = new HashMap<>();
+
+        for (int button : STANDARD_BUTTONS) {
+            keyMap.put(button, button);
+        }
+        // Dpad keys are seen as the HAT axis
+        keyMap.put(AXIS_HAT_X, AXIS_HAT_X);
+        keyMap.put(AXIS_HAT_Y, AXIS_HAT_Y);
+        mapIfPresent(axes, motionMap, AXIS_HAT_X, AXIS_HAT_Y, AXIS_HAT_X, AXIS_HAT_Y);
+
+        mapIfPresent(axes, motionMap, AXIS_X, AXIS_Y, AXIS_X, AXIS_Y);
+        if (!mapIfPresent(axes, motionMap, AXIS_Z, AXIS_RZ, AXIS_Z, AXIS_RZ)) {
+            mapIfPresent(axes, motionMap, AXIS_RX, AXIS_RY, AXIS_Z, AXIS_RZ);
+        }
+
+        boolean areTriggersMapped = mapIfPresent(axes, motionMap, AXIS_LTRIGGER, AXIS_RTRIGGER, AXIS_LTRIGGER, AXIS_RTRIGGER)
+                || mapIfPresent(axes, motionMap, AXIS_BRAKE, AXIS_GAS, AXIS_LTRIGGER, AXIS_RTRIGGER)
+                || (motionMap.get(AXIS_RX) == null && mapIfPresent(axes, motionMap, AXIS_RX, AXIS_RY, AXIS_LTRIGGER, AXIS_RTRIGGER));
+        if (!areTriggersMapped) {
+            // Digital triggers only
+            keyMap.put(KEYCODE_BUTTON_L2, AXIS_LTRIGGER);
+            keyMap.put(KEYCODE_BUTTON_R2, AXIS_RTRIGGER);
+        }
+
+        ProfileCodec.Profile profile = new ProfileCodec.Profile();
+        profile.keyMap = MappingTable.from(keyMap);
+        profile.motionMap = MappingTable.from(motionMap);
+        return profile;
+    }
+
+    /**
+     * Map a pair of axis, only if both are reported
+     *
+     * @return Whether the pair got mapped
+     */
+    private static boolean mapIfPresent(long axes, Map<Integer, Integer> motionMap, int first, int second, int firstTarget, int secondTarget) {
+        if ((axes & (1L << first)) == 0 || (axes & (1L << second)) == 0) return false;
+        motionMap.put(first, firstTarget);
+        motionMap.put(second, secondTarget);
+        return true;
+    }
+}
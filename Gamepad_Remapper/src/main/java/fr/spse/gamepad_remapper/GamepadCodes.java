@@ -0,0 +1,52 @@
+package fr.spse.gamepad_remapper;
+
+/**
+ * Keycodes and axis ids used by the remapping core.
+ * Same values as {@link android.view.KeyEvent} and {@link android.view.MotionEvent},
+ * so the core can be used where the Android classes are not available.
+ */
+public final class GamepadCodes {
+    public static final int KEYCODE_UNKNOWN = 0;
+    public static final int KEYCODE_DPAD_UP = 19;
+    public static final int KEYCODE_DPAD_DOWN = 20;
+    public static final int KEYCODE_DPAD_LEFT = 21;
+    public static final int KEYCODE_DPAD_RIGHT = 22;
+    public static final int KEYCODE_DPAD_CENTER = 23;
+    public static final int KEYCODE_BUTTON_A = 96;
+    public static final int KEYCODE_BUTTON_B = 97;
+    public static final int KEYCODE_BUTTON_C = 98;
+    public static final int KEYCODE_BUTTON_X = 99;
+    public static final int KEYCODE_BUTTON_Y = 100;
+    public static final int KEYCODE_BUTTON_Z = 101;
+    public static final int KEYCODE_BUTTON_L1 = 102;
+    public static final int KEYCODE_BUTTON_R1 = 103;
+    public static final int KEYCODE_BUTTON_L2 = 104;
+    public static final int KEYCODE_BUTTON_R2 = 105;
+    public static final int KEYCODE_BUTTON_THUMBL = 106;
+    public static final int KEYCODE_BUTTON_THUMBR = 107;
+    public static final int KEYCODE_BUTTON_START = 108;
+    public static final int KEYCODE_BUTTON_SELECT = 109;
+    public static final int KEYCODE_BUTTON_MODE = 110;
+    public static final int KEYCODE_BUTTON_16 = 203;
+
+    public static final int AXIS_X = 0;
+    public static final int AXIS_Y = 1;
+    public static final int AXIS_Z = 11;
+    public static final int AXIS_RX = 12;
+    public static final int AXIS_RY = 13;
+    public static final int AXIS_RZ = 14;
+    public static final int AXIS_HAT_X = 15;
+    public static final int AXIS_HAT_Y = 16;
+    public static final int AXIS_LTRIGGER = 17;
+    public static final int AXIS_RTRIGGER = 18;
+    public static final int AXIS_THROTTLE = 19;
+    public static final int AXIS_GAS = 22;
+    public static final int AXIS_BRAKE = 23;
+    public static final int AXIS_GENERIC_16 = 47;
+
+    /** Axis the remapper reads */
+    public static final int[] SUPPORTED_AXIS = new int[]{AXIS_HAT_X, AXIS_HAT_Y, AXIS_RX, AXIS_RY, AXIS_X, AXIS_Y, AXIS_Z, AXIS_RZ, AXIS_GAS, AXIS_BRAKE, AXIS_THROTTLE, AXIS_RTRIGGER, AXIS_LTRIGGER};
+
+    private GamepadCodes() {
+    }
+}
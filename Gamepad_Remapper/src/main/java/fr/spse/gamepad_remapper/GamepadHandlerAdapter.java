@@ -0,0 +1,17 @@
+package fr.spse.gamepad_remapper;
+
+/**
+ * Passes timed inputs down to a {@link GamepadHandler}, dropping the time and device.
+ */
+final class GamepadHandlerAdapter implements TimedGamepadHandler {
+    final GamepadHandler handler;
+
+    GamepadHandlerAdapter(GamepadHandler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void handleGamepadInput(int code, float value, long eventTime, int deviceId) {
+        handler.handleGamepadInput(code, value);
+    }
+}
@@ -0,0 +1,45 @@
+package fr.spse.gamepad_remapper;
+
+/**
+ * Snapshot of all remapped inputs of a gamepad, for poll based game loops.
+ * Holds the last value passed to the handler for each code, see {@link GamepadHandler#handleGamepadInput(int, float)}.
+ */
+public class GamepadState {
+    final float[] values = new float[StateVector.KEY_SLOT_COUNT];
+    long eventTime;
+    long sequence;
+
+    GamepadState() {
+    }
+
+    /**
+     * @param code Either a keycode (Eg. KEYBODE_BUTTON_A), either an axis (Eg. AXIS_HAT_X)
+     * @return The last value of the code, 0 if it never changed or isn't tracked.
+     */
+    public float getValue(int code) {
+        int slot = StateVector.keySlot(code);
+        if (slot == StateVector.NO_SLOT) return 0;
+        return values[slot];
+    }
+
+    /**
+     * @return Whether the button is pressed, or the axis is away from its resting position
+     */
+    public boolean isActive(int code) {
+        return getValue(code) != 0;
+    }
+
+    /**
+     * @return The time of the last source event in nanoseconds, see {@link TimedGamepadHandler}
+     */
+    public long getEventTime() {
+        return eventTime;
+    }
+
+    /**
+     * @return A number increasing each time a new snapshot is published, 0 if none was
+     */
+    public long getSequence() {
+        return sequence;
+    }
+}
@@ -0,0 +1,45 @@
+package fr.spse.gamepad_remapper;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Triple buffer publishing {@link GamepadState} snapshots from the input thread to a single reader thread.
+ * Neither side blocks: the writer fills a back buffer then swaps it with the ready one,
+ * the reader swaps the ready buffer with its front one only when a newer one was published.
+ */
+final class GamepadStateBuffer {
+    private static final int INDEX_MASK = 0b11;
+    private static final int FRESH = 0b100;
+
+    private final GamepadState[] states = {new GamepadState(), new GamepadState(), new GamepadState()};
+    /* Index of the buffer ready to be read, with the FRESH bit when not read yet */
+    private final AtomicInteger ready = new AtomicInteger(0);
+    /* Only accessed by the writer */
+    private int back = 1;
+    private long sequence = 0;
+    /* Only accessed by the reader */
+    private int front = 2;
+
+    /**
+     * Writer side, publish a copy of the values
+     */
+    void publish(float[] values, long eventTime) {
+        GamepadState state = states[back];
+        System.arraycopy(values, 0, state.values, 0, state.values.length);
+        state.eventTime = eventTime;
+        state.sequence = ++sequence;
+
+        back = ready.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Reader side, get the most recent snapshot.
+     * It stays untouched until the next call.
+     */
+    GamepadState acquire() {
+        if ((ready.get() & FRESH) != 0) {
+            front = ready.getAndSet(front) & INDEX_MASK;
+        }
+        return states[front];
+    }
+}
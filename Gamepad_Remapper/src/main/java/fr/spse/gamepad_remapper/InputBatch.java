@@ -0,0 +1,35 @@
+package fr.spse.gamepad_remapper;
+
+/**
+ * Growable list of (code, value, timestamp) records, stored as primitive arrays.
+ * Meant to be reused, so it only allocates when growing.
+ */
+final class InputBatch {
+    int[] codes = new int[32];
+    float[] values = new float[32];
+    long[] timestamps = new long[32];
+    int count = 0;
+
+    void add(int code, float value, long timestamp) {
+        if (count == codes.length) {
+            int[] newCodes = new int[count * 2];
+            float[] newValues = new float[count * 2];
+            long[] newTimestamps = new long[count * 2];
+            System.arraycopy(codes, 0, newCodes, 0, count);
+            System.arraycopy(values, 0, newValues, 0, count);
+            System.arraycopy(timestamps, 0, newTimestamps, 0, count);
+            codes = newCodes;
+            values = newValues;
+            timestamps = newTimestamps;
+        }
+
+        codes[count] = code;
+        values[count] = value;
+        timestamps[count] = timestamp;
+        ++count;
+    }
+
+    void clear() {
+        count = 0;
+    }
+}
@@ -0,0 +1,88 @@
+package fr.spse.gamepad_remapper;
+
+import android.content.Context;
+import android.hardware.input.InputManager;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+
+/**
+ * Listens to input devices being added, changed or removed, to invalidate data cached per device.
+ * A single listener is registered for the whole application, so it never leaks a caller.
+ */
+final class InputDeviceWatcher {
+    /* Bumped each time a device is added, changed or removed */
+    private static volatile int generation = 0;
+    private static boolean isWatching = false;
+    /* Notified on the main thread, held weakly so a forgotten listener does not leak */
+    private static final ArrayList<WeakReference<RemovalListener>> removalListeners = new ArrayList<>();
+
+    interface RemovalListener {
+        void onInputDeviceRemoved(int deviceId);
+    }
+
+    private InputDeviceWatcher() {
+    }
+
+    /**
+     * @return A number changing each time a device is added, changed or removed
+     */
+    static int getGeneration() {
+        return generation;
+    }
+
+    private static void onDevicesChanged() {
+        generation++;
+        DeadzoneCache.invalidate();
+    }
+
+    /**
+     * Listen to devices being removed. The listener must be strongly referenced by the caller.
+     */
+    static synchronized void addRemovalListener(RemovalListener listener) {
+        removalListeners.add(new WeakReference<>(listener));
+    }
+
+    private static synchronized void notifyRemoved(int deviceId) {
+        for (int i = removalListeners.size() - 1; i >= 0; --i) {
+            RemovalListener listener = removalListeners.get(i).get();
+            if (listener == null) {
+                removalListeners.remove(i);
+            } else {
+                listener.onInputDeviceRemoved(deviceId);
+            }
+        }
+    }
+
+    /**
+     * Start listening to device changes, if not done already
+     *
+     * @param context Any context, only the application one is kept
+     */
+    static synchronized void watch(Context context) {
+        if (isWatching) return;
+        InputManager inputManager = (InputManager) context.getApplicationContext().getSystemService(Context.INPUT_SERVICE);
+        if (inputManager == null) return;
+
+        inputManager.registerInputDeviceListener(new InputManager.InputDeviceListener() {
+            @Override
+            public void onInputDeviceAdded(int deviceId) {
+                onDevicesChanged();
+            }
+
+            @Override
+            public void onInputDeviceRemoved(int deviceId) {
+                onDevicesChanged();
+                notifyRemoved(deviceId);
+            }
+
+            @Override
+            public void onInputDeviceChanged(int deviceId) {
+                onDevicesChanged();
+            }
+        }, new Handler(Looper.getMainLooper()));
+        isWatching = true;
+    }
+}
@@ -0,0 +1,118 @@
+package fr.spse.gamepad_remapper;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single producer, single consumer lock-free queue of remapped inputs.
+ * <p>
+ * Pass it as the handler of a {@link Remapper} or {@link RemapperManager} on the input thread,
+ * then drain it from the game thread, once per frame for instance.
+ * Inputs are stored as primitive records, so neither side allocates nor blocks.
+ * <p>
+ * When full, new inputs are dropped and counted, see {@link #getDroppedCount()}.
+ */
+public class InputRingBuffer implements TimedGamepadHandler {
+    private final int mask;
+    private final int[] codes;
+    private final float[] values;
+    private final long[] eventTimes;
+    private final int[] deviceIds;
+
+    /* Index of the next record to write, only moved by the producer */
+    private final AtomicLong writeIndex = new AtomicLong();
+    /* Index of the next record to read, only moved by the consumer */
+    private final AtomicLong readIndex = new AtomicLong();
+    /* Only written by the producer */
+    private volatile long droppedCount = 0;
+
+    /**
+     * @param capacity The minimum amount of inputs the buffer can hold, rounded up to a power of two
+     */
+    public InputRingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+
+        mask = size - 1;
+        codes = new int[size];
+        values = new float[size];
+        eventTimes = new long[size];
+        deviceIds = new int[size];
+    }
+
+    /**
+     * Producer side, queue the input
+     */
+    @Override
+    public void handleGamepadInput(int code, float value, long eventTime, int deviceId) {
+        long write = writeIndex.get();
+        if (write - readIndex.get() > mask) {
+            droppedCount = droppedCount + 1;
+            return;
+        }
+
+        int index = (int) write & mask;
+        codes[index] = code;
+        values[index] = value;
+        eventTimes[index] = eventTime;
+        deviceIds[index] = deviceId;
+        // Ordered store, publishes the record to the consumer
+        writeIndex.lazySet(write + 1);
+    }
+
+    /**
+     * Consumer side, pass all queued inputs to the handler, in order.
+     *
+     * @return The amount of inputs passed
+     */
+    public int drain(TimedGamepadHandler handler) {
+        long read = readIndex.get();
+        long write = writeIndex.get();
+        for (long i = read; i < write; ++i) {
+            int index = (int) i & mask;
+            handler.handleGamepadInput(codes[index], values[index], eventTimes[index], deviceIds[index]);
+        }
+        readIndex.lazySet(write);
+        return (int) (write - read);
+    }
+
+    /**
+     * Consumer side, copy queued inputs into the arrays, in order.
+     * Inputs not fitting in the arrays are left in the buffer.
+     *
+     * @return The amount of inputs copied
+     */
+    public int drain(int[] codes, float[] values, long[] eventTimes, int[] deviceIds) {
+        long read = readIndex.get();
+        int count = (int) Math.min(writeIndex.get() - read, codes.length);
+        for (int i = 0; i < count; ++i) {
+            int index = (int) (read + i) & mask;
+            codes[i] = this.codes[index];
+            values[i] = this.values[index];
+            eventTimes[i] = this.eventTimes[index];
+            deviceIds[i] = this.deviceIds[index];
+        }
+        readIndex.lazySet(read + count);
+        return count;
+    }
+
+    /**
+     * @return The amount of inputs waiting to be drained
+     */
+    public int size() {
+        return (int) (writeIndex.get() - readIndex.get());
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @return The amount of inputs dropped because the buffer was full
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+}
@@ -0,0 +1,402 @@
+package fr.spse.gamepad_remapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Handler adding turbo, chords and macros on top of the remapped inputs, before passing them to another handler.
+ * <ul>
+ *     <li>Turbo: a held input is pressed and released repeatedly, at a given frequency</li>
+ *     <li>Chord: inputs pressed together within a short window press another code instead</li>
+ *     <li>Macro: pressing an input plays a timed sequence of values</li>
+ * </ul>
+ * Timed actions are scheduled on a {@link TimerWheel}, advanced by each input and by {@link #tick(long)}.
+ * Nothing is allocated once built.
+ * <p>
+ * Codes are the remapped ones. An input is considered pressed from 0.5. Not thread safe: inputs and ticks
+ * must come from the same thread.
+ */
+public final class MacroEngine implements TimedGamepadHandler {
+    public static final long DEFAULT_CHORD_WINDOW_MILLIS = 50;
+
+    private static final long MILLISECOND = 1_000_000L;
+    private static final int WHEEL_BUCKETS = 256;
+
+    private final TimedGamepadHandler handler;
+    private final TimerWheel wheel;
+    private final TimerWheel.Callback timerCallback = this::onTimer;
+    /* Last device seen, for the inputs emitted by timers */
+    private int deviceId;
+    /* Time the wheel is advanced to, while firing timers */
+    private long now;
+
+    /* Turbo, timer ids start at 0 */
+    private final int[] turboCodes;
+    private final long[] turboHalfPeriods;
+    private final float[] turboValues;
+    private final boolean[] isTurboHeld, isTurboOn;
+
+    /* Chords, timer ids start after the turbos. Members are flattened, with their chord and bit */
+    private final int chordTimerStart;
+    private final int[] chordTargets, chordFullMasks;
+    private final int[] memberCodes, memberChords, memberBits;
+    private final float[] memberValues;
+    private final long chordWindow;
+    /* Per chord, bitsets of the members held, delayed until the window ends, and whose release is swallowed */
+    private final int[] heldMasks, pendingMasks, swallowedMasks;
+    private final boolean[] isChordActive;
+
+    /* Macros, timer ids start after the chords */
+    private final int macroTimerStart;
+    private final int[] macroTriggers;
+    private final int[][] macroCodes;
+    private final float[][] macroValues;
+    private final long[][] macroOffsets;
+    /* Per macro, start time and next step to play. A macro is playing while its timer is scheduled */
+    private final long[] macroStarts;
+    private final int[] macroSteps;
+
+    private MacroEngine(Builder builder, TimedGamepadHandler handler) {
+        this.handler = handler;
+
+        int turboCount = builder.turboCodes.size();
+        turboCodes = new int[turboCount];
+        turboHalfPeriods = new long[turboCount];
+        for (int i = 0; i < turboCount; ++i) {
+            turboCodes[i] = builder.turboCodes.get(i);
+            turboHalfPeriods[i] = (long) (1e9 / builder.turboFrequencies.get(i) / 2);
+        }
+        turboValues = new float[turboCount];
+        isTurboHeld = new boolean[turboCount];
+        isTurboOn = new boolean[turboCount];
+
+        int chordCount = builder.chordTargets.size();
+        chordTimerStart = turboCount;
+        chordTargets = new int[chordCount];
+        chordFullMasks = new int[chordCount];
+        int memberCount = 0;
+        for (int[] members : builder.chordMembers) memberCount += members.length;
+        memberCodes = new int[memberCount];
+        memberChords = new int[memberCount];
+        memberBits = new int[memberCount];
+        memberValues = new float[memberCount];
+        int member = 0;
+        for (int i = 0; i < chordCount; ++i) {
+            chordTargets[i] = builder.chordTargets.get(i);
+            int[] members = builder.chordMembers.get(i);
+            for (int j = 0; j < members.length; ++j, ++member) {
+                memberCodes[member] = members[j];
+                memberChords[member] = i;
+                memberBits[member] = 1 << j;
+            }
+            chordFullMasks[i] = (1 << members.length) - 1;
+        }
+        chordWindow = builder.chordWindowMillis * MILLISECOND;
+        heldMasks = new int[chordCount];
+        pendingMasks = new int[chordCount];
+        swallowedMasks = new int[chordCount];
+        isChordActive = new boolean[chordCount];
+
+        int macroCount = builder.macroTriggers.size();
+        macroTimerStart = chordTimerStart + chordCount;
+        macroTriggers = new int[macroCount];
+        macroCodes = new int[macroCount][];
+        macroValues = new float[macroCount][];
+        macroOffsets = new long[macroCount][];
+        for (int i = 0; i < macroCount; ++i) {
+            Macro macro = builder.macros.get(i);
+            macroTriggers[i] = builder.macroTriggers.get(i);
+            macroCodes[i] = toIntArray(macro.codes);
+            macroValues[i] = new float[macro.values.size()];
+            macroOffsets[i] = new long[macro.offsets.size()];
+            for (int j = 0; j < macroValues[i].length; ++j) {
+                macroValues[i][j] = macro.values.get(j);
+                macroOffsets[i][j] = macro.offsets.get(j) * MILLISECOND;
+            }
+        }
+        macroStarts = new long[macroCount];
+        macroSteps = new int[macroCount];
+
+        wheel = new TimerWheel(macroTimerStart + macroCount, WHEEL_BUCKETS, MILLISECOND);
+    }
+
+    /**
+     * Play the timed actions due, without waiting for the next input.
+     * Call it regularly, Eg. from a Choreographer frame callback, for turbo and macros to stay on time.
+     *
+     * @param now The current time in nanoseconds, in the same time base as the event times
+     */
+    public void tick(long now) {
+        this.now = now;
+        wheel.advance(now, timerCallback);
+    }
+
+    @Override
+    public void handleGamepadInput(int code, float value, long eventTime, int deviceId) {
+        this.deviceId = deviceId;
+        tick(eventTime);
+        boolean isPressed = Math.abs(value) >= 0.5f;
+
+        int macro = indexOf(macroTriggers, code);
+        if (macro != -1) {
+            // The trigger itself is swallowed, a macro playing is not restarted
+            if (isPressed && !wheel.isScheduled(macroTimerStart + macro)) startMacro(macro, eventTime);
+            return;
+        }
+
+        int member = indexOf(memberCodes, code);
+        if (member != -1 && handleChordInput(member, value, isPressed, eventTime)) return;
+
+        dispatch(code, value, eventTime);
+    }
+
+    private void onTimer(int timer, long deadline) {
+        if (timer < chordTimerStart) {
+            onTurboTimer(timer, deadline);
+        } else if (timer < macroTimerStart) {
+            flushChord(timer - chordTimerStart, deadline);
+        } else {
+            playMacro(timer - macroTimerStart);
+        }
+    }
+
+    /**
+     * Pass an input to the handler, through the turbo if any
+     */
+    private void dispatch(int code, float value, long eventTime) {
+        int turbo = indexOf(turboCodes, code);
+        if (turbo == -1) {
+            handler.handleGamepadInput(code, value, eventTime, deviceId);
+            return;
+        }
+
+        boolean isPressed = Math.abs(value) >= 0.5f;
+        turboValues[turbo] = value;
+        if (isPressed == isTurboHeld[turbo]) {
+            // Analog changes are passed, unless held and currently off
+            if (!isPressed || isTurboOn[turbo]) handler.handleGamepadInput(code, value, eventTime, deviceId);
+            return;
+        }
+
+        isTurboHeld[turbo] = isPressed;
+        if (isPressed) {
+            isTurboOn[turbo] = true;
+            handler.handleGamepadInput(code, value, eventTime, deviceId);
+            wheel.schedule(turbo, eventTime + turboHalfPeriods[turbo]);
+        } else {
+            wheel.cancel(turbo);
+            if (isTurboOn[turbo]) handler.handleGamepadInput(code, 0, eventTime, deviceId);
+            isTurboOn[turbo] = false;
+        }
+    }
+
+    private void onTurboTimer(int turbo, long deadline) {
+        isTurboOn[turbo] = !isTurboOn[turbo];
+        handler.handleGamepadInput(turboCodes[turbo], isTurboOn[turbo] ? turboValues[turbo] : 0, deadline, deviceId);
+        // Late by more than a period, Eg. after a pause without tick, resume from now instead of catching up
+        long nextDeadline = deadline + turboHalfPeriods[turbo];
+        if (now - nextDeadline > 2 * turboHalfPeriods[turbo]) nextDeadline = now;
+        wheel.schedule(turbo, nextDeadline);
+    }
+
+    /**
+     * @return Whether the input got swallowed or delayed by the chord
+     */
+    private boolean handleChordInput(int member, float value, boolean isPressed, long eventTime) {
+        int chord = memberChords[member];
+        int bit = memberBits[member];
+        boolean wasPressed = (heldMasks[chord] & bit) != 0;
+        memberValues[member] = value;
+
+        if (isPressed == wasPressed) {
+            // Analog change, follows the press
+            return (pendingMasks[chord] & bit) != 0 || (swallowedMasks[chord] & bit) != 0;
+        }
+
+        if (isPressed) {
+            int passedMask = heldMasks[chord] & ~(pendingMasks[chord] | swallowedMasks[chord]);
+            heldMasks[chord] |= bit;
+            // Other members are pressed already, no chord this time
+            if (passedMask != 0) return false;
+            if (heldMasks[chord] == chordFullMasks[chord]) {
+                // All members pressed within the window, the delayed presses are dropped
+                wheel.cancel(chordTimerStart + chord);
+                pendingMasks[chord] = 0;
+                swallowedMasks[chord] = chordFullMasks[chord];
+                isChordActive[chord] = true;
+                dispatch(chordTargets[chord], 1, eventTime);
+                return true;
+            }
+            if (pendingMasks[chord] == 0) wheel.schedule(chordTimerStart + chord, eventTime + chordWindow);
+            pendingMasks[chord] |= bit;
+            return true;
+        }
+
+        heldMasks[chord] &= ~bit;
+        if ((swallowedMasks[chord] & bit) != 0) {
+            swallowedMasks[chord] &= ~bit;
+            if (isChordActive[chord]) {
+                isChordActive[chord] = false;
+                dispatch(chordTargets[chord], 0, eventTime);
+            }
+            return true;
+        }
+        if ((pendingMasks[chord] & bit) != 0) {
+            // Released before the end of the window, pass a quick tap
+            pendingMasks[chord] &= ~bit;
+            if (pendingMasks[chord] == 0) wheel.cancel(chordTimerStart + chord);
+            dispatch(memberCodes[member], 1, eventTime);
+            dispatch(memberCodes[member], value, eventTime);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The window ended without all members pressed, pass the delayed presses
+     */
+    private void flushChord(int chord, long deadline) {
+        for (int member = 0; member < memberCodes.length; ++member) {
+            if (memberChords[member] != chord || (pendingMasks[chord] & memberBits[member]) == 0) continue;
+            dispatch(memberCodes[member], memberValues[member], deadline);
+        }
+        pendingMasks[chord] = 0;
+    }
+
+    private void startMacro(int macro, long eventTime) {
+        macroStarts[macro] = eventTime;
+        macroSteps[macro] = 0;
+        playMacro(macro);
+    }
+
+    /**
+     * Play the steps due, then schedule the next one
+     */
+    private void playMacro(int macro) {
+        long[] offsets = macroOffsets[macro];
+        int step = macroSteps[macro];
+        for (; step < offsets.length && macroStarts[macro] + offsets[step] <= now; ++step) {
+            handler.handleGamepadInput(macroCodes[macro][step], macroValues[macro][step], macroStarts[macro] + offsets[step], deviceId);
+        }
+        macroSteps[macro] = step;
+        if (step < offsets.length) wheel.schedule(macroTimerStart + macro, macroStarts[macro] + offsets[step]);
+    }
+
+    private static int indexOf(int[] codes, int code) {
+        for (int i = 0; i < codes.length; ++i) {
+            if (codes[i] == code) return i;
+        }
+        return -1;
+    }
+
+    private static int[] toIntArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; ++i) array[i] = list.get(i);
+        return array;
+    }
+
+    /**
+     * Timed sequence of input values, played by a {@link MacroEngine}
+     */
+    public static final class Macro {
+        private final List<Integer> codes = new ArrayList<>();
+        private final List<Float> values = new ArrayList<>();
+        private final List<Long> offsets = new ArrayList<>();
+        private long duration = 0;
+
+        /**
+         * Pass a value, after the previous step
+         *
+         * @param code        The code passed to the handler
+         * @param value       The value passed to the handler
+         * @param delayMillis The delay since the previous step, in milliseconds
+         */
+        public Macro then(int code, float value, long delayMillis) {
+            if (delayMillis < 0) throw new IllegalArgumentException("Invalid delay: " + delayMillis);
+            duration += delayMillis;
+            codes.add(code);
+            values.add(value);
+            offsets.add(duration);
+            return this;
+        }
+
+        /**
+         * Press then release a key
+         *
+         * @param holdMillis How long the key is held, in milliseconds
+         */
+        public Macro tap(int code, long delayMillis, long holdMillis) {
+            return then(code, 1, delayMillis).then(code, 0, holdMillis);
+        }
+    }
+
+    public static final class Builder {
+        private final List<Integer> turboCodes = new ArrayList<>();
+        private final List<Float> turboFrequencies = new ArrayList<>();
+        private final List<Integer> chordTargets = new ArrayList<>();
+        private final List<int[]> chordMembers = new ArrayList<>();
+        private final List<Integer> macroTriggers = new ArrayList<>();
+        private final List<Macro> macros = new ArrayList<>();
+        private long chordWindowMillis = DEFAULT_CHORD_WINDOW_MILLIS;
+
+        /**
+         * Press and release the input repeatedly while held
+         *
+         * @param frequency Presses per second
+         */
+        public Builder addTurbo(int code, float frequency) {
+            if (!(frequency > 0 && frequency <= 500)) throw new IllegalArgumentException("Invalid frequency: " + frequency);
+            turboCodes.add(code);
+            turboFrequencies.add(frequency);
+            return this;
+        }
+
+        /**
+         * Press the target instead of the members, when they are all pressed within the chord window.
+         * Presses of the members are delayed by up to the chord window. An input can only be part of a single chord.
+         *
+         * @param target  The code pressed, can be a turbo
+         * @param members The codes to press together, from 2 to 31
+         */
+        public Builder addChord(int target, int... members) {
+            if (members.length < 2 || members.length > 31) throw new IllegalArgumentException("Invalid chord size: " + members.length);
+            for (int[] chord : chordMembers) {
+                for (int code : chord) {
+                    if (indexOf(members, code) != -1) throw new IllegalArgumentException("Already part of a chord: " + code);
+                }
+            }
+            chordTargets.add(target);
+            chordMembers.add(members.clone());
+            return this;
+        }
+
+        /**
+         * @param windowMillis How long after the first member the others can be pressed, in milliseconds
+         */
+        public Builder setChordWindow(long windowMillis) {
+            if (windowMillis <= 0) throw new IllegalArgumentException("Invalid window: " + windowMillis);
+            chordWindowMillis = windowMillis;
+            return this;
+        }
+
+        /**
+         * Play the macro when the trigger is pressed. The trigger itself is not passed.
+         */
+        public Builder addMacro(int trigger, Macro macro) {
+            macroTriggers.add(trigger);
+            macros.add(macro);
+            return this;
+        }
+
+        /**
+         * @param handler The handler receiving the inputs, with the turbo, chords and macros applied
+         */
+        public MacroEngine build(TimedGamepadHandler handler) {
+            return new MacroEngine(this, handler);
+        }
+
+        public MacroEngine build(GamepadHandler handler) {
+            return build(new GamepadHandlerAdapter(handler));
+        }
+    }
+}
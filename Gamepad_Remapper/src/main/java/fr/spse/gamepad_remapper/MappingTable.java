@@ -0,0 +1,88 @@
+package fr.spse.gamepad_remapper;
+
+import java.util.Map;
+
+/**
+ * Compiled, read-only version of a remapping map.
+ * Lookups are done through a dense int array indexed by the source code, so the per event path
+ * does neither boxing nor binary search.
+ */
+final class MappingTable {
+    /** Returned by {@link #get(int)} when the code has no mapping */
+    static final int UNMAPPED = Integer.MIN_VALUE;
+
+    /* Raw pairs, kept in insertion order for serialization */
+    private final int[] sources, targets;
+    /* Dense lookup table, indexed by source code */
+    private final int[] table;
+
+    MappingTable(int[] sources, int[] targets) {
+        this.sources = sources;
+        this.targets = targets;
+
+        int maxSource = -1;
+        for (int source : sources) {
+            if (source > maxSource) maxSource = source;
+        }
+
+        table = new int[maxSource + 1];
+        for (int i = 0; i < table.length; ++i) {
+            table[i] = UNMAPPED;
+        }
+        // Later pairs override earlier ones, like a Map#put would
+        for (int i = 0; i < sources.length; ++i) {
+            if (sources[i] >= 0) table[sources[i]] = targets[i];
+        }
+    }
+
+    /**
+     * Compile a boxed map into a table
+     */
+    static MappingTable from(Map<Integer, Integer> map) {
+        int[] sources = new int[map.size()];
+        int[] targets = new int[map.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Integer> entry : map.entrySet()) {
+            sources[i] = entry.getKey();
+            targets[i] = entry.getValue();
+            ++i;
+        }
+        return new MappingTable(sources, targets);
+    }
+
+    /**
+     * @return A table mapping the targets back to their sources
+     */
+    MappingTable reverse() {
+        return new MappingTable(targets, sources);
+    }
+
+    /**
+     * @return The mapped value, or {@link #UNMAPPED}
+     */
+    int get(int code) {
+        if (code < 0 || code >= table.length) return UNMAPPED;
+        return table[code];
+    }
+
+    /**
+     * @return The mapped value, or the code itself if there is no mapping
+     */
+    int map(int code) {
+        if (code < 0 || code >= table.length) return code;
+        int mapped = table[code];
+        return mapped == UNMAPPED ? code : mapped;
+    }
+
+    int size() {
+        return sources.length;
+    }
+
+    int sourceAt(int index) {
+        return sources[index];
+    }
+
+    int targetAt(int index) {
+        return targets[index];
+    }
+}
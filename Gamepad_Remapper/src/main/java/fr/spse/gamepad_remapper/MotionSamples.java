@@ -0,0 +1,33 @@
+package fr.spse.gamepad_remapper;
+
+/**
+ * Axis values of a motion event, as read by the {@link RemapperCore}.
+ * An event holds the current sample, and possibly historical samples batched before it.
+ */
+public interface MotionSamples {
+    /** Position of the current sample, as opposed to historical ones */
+    int CURRENT_SAMPLE = -1;
+
+    /**
+     * @return The id of the device the event comes from
+     */
+    int getDeviceId();
+
+    /**
+     * @return The amount of historical samples, from 0 to getHistorySize() - 1 in chronological order
+     */
+    int getHistorySize();
+
+    /**
+     * @param sample The sample position, or {@link #CURRENT_SAMPLE}
+     * @return The time of the sample in nanoseconds
+     */
+    long getSampleTime(int sample);
+
+    /**
+     * @param axis   The axis, see {@link GamepadCodes}
+     * @param sample The sample position, or {@link #CURRENT_SAMPLE}
+     * @return The value of the axis at the sample
+     */
+    float getAxisValue(int axis, int sample);
+}
@@ -0,0 +1,245 @@
+package fr.spse.gamepad_remapper;
+
+import android.view.InputDevice;
+
+/**
+ * Assigns connected gamepads to stable player indexes, and routes the remapped inputs of each one
+ * to the handler and state of its player.
+ * <p>
+ * A player keeps the descriptor of its gamepad when it disconnects, so the same gamepad gets the same player back.
+ * New gamepads take the first player never used, then the first disconnected one.
+ * <p>
+ * Not thread safe, meant to be used from the input thread. Only {@link #getState(int)} may be called from another one.
+ */
+public final class PlayerSlots {
+    /** Returned when a device has no player */
+    public static final int NO_PLAYER = -1;
+    /** Returned when a player has no device */
+    public static final int NO_DEVICE = -1;
+
+    public interface Listener {
+        /**
+         * @param player   The index of the player
+         * @param deviceId The id of the device now driving the player
+         */
+        void onPlayerConnected(int player, int deviceId);
+
+        /**
+         * Called after the inputs held by the player got released
+         *
+         * @param player   The index of the player
+         * @param deviceId The id of the device which got removed
+         */
+        void onPlayerDisconnected(int player, int deviceId);
+    }
+
+    private final Player[] players;
+    private Listener listener;
+
+    /**
+     * @param playerCount The maximum amount of players
+     */
+    public PlayerSlots(int playerCount) {
+        if (playerCount <= 0) throw new IllegalArgumentException("Invalid player count: " + playerCount);
+        players = new Player[playerCount];
+        for (int i = 0; i < playerCount; ++i) {
+            players[i] = new Player();
+        }
+    }
+
+    public int getPlayerCount() {
+        return players.length;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param handler Receives the remapped inputs of the player, null to only track its state
+     */
+    public void setHandler(int player, TimedGamepadHandler handler) {
+        players[player].handler = handler;
+    }
+
+    /**
+     * Enable the publication of the {@link GamepadState} of each player, see {@link #getState(int)}
+     */
+    public void setStateEnabled(boolean enabled) {
+        for (Player player : players) {
+            player.stateBuffer = enabled ? new GamepadStateBuffer() : null;
+        }
+    }
+
+    /**
+     * Get the latest snapshot of all remapped inputs of a player. Never blocks the input thread.
+     *
+     * @return The latest published state, untouched until the next call. Null if disabled.
+     */
+    public GamepadState getState(int player) {
+        GamepadStateBuffer buffer = players[player].stateBuffer;
+        return buffer == null ? null : buffer.acquire();
+    }
+
+    /**
+     * @return The player of the device, or {@link #NO_PLAYER} if it has none
+     */
+    public int getPlayer(int deviceId) {
+        for (int i = 0; i < players.length; ++i) {
+            if (players[i].deviceId == deviceId) return i;
+        }
+        return NO_PLAYER;
+    }
+
+    /**
+     * @return The id of the device driving the player, or {@link #NO_DEVICE} if disconnected
+     */
+    public int getDeviceId(int player) {
+        return players[player].deviceId;
+    }
+
+    /**
+     * @return The descriptor of the last device driving the player, null if never used
+     */
+    String getDescriptor(int player) {
+        return players[player].descriptor;
+    }
+
+    public boolean isConnected(int player) {
+        return players[player].deviceId != NO_DEVICE;
+    }
+
+    /**
+     * Only gamepads and joysticks get a player, not the volume keys or a keyboard sending events first
+     *
+     * @param sources The sources of the device, see {@link InputDevice#getSources()}
+     */
+    static boolean isGamepad(int sources) {
+        return (sources & InputDevice.SOURCE_GAMEPAD) == InputDevice.SOURCE_GAMEPAD
+                || (sources & InputDevice.SOURCE_JOYSTICK) == InputDevice.SOURCE_JOYSTICK;
+    }
+
+    /**
+     * Get the player of the device, assigning one if needed
+     *
+     * @param descriptor The descriptor of the device, stable across reconnections
+     * @return The player, or {@link #NO_PLAYER} if all of them are taken
+     */
+    public int assign(int deviceId, String descriptor) {
+        int player = getPlayer(deviceId);
+        if (player != NO_PLAYER) return player;
+
+        player = findFreePlayer(descriptor);
+        if (player == NO_PLAYER) return NO_PLAYER;
+
+        players[player].deviceId = deviceId;
+        players[player].descriptor = descriptor;
+        if (listener != null) listener.onPlayerConnected(player, deviceId);
+        return player;
+    }
+
+    private int findFreePlayer(String descriptor) {
+        // The player this gamepad had before
+        for (int i = 0; i < players.length; ++i) {
+            if (players[i].deviceId == NO_DEVICE && descriptor.equals(players[i].descriptor)) return i;
+        }
+        // A player never used
+        for (int i = 0; i < players.length; ++i) {
+            if (players[i].descriptor == null) return i;
+        }
+        // A player whose gamepad left
+        for (int i = 0; i < players.length; ++i) {
+            if (players[i].deviceId == NO_DEVICE) return i;
+        }
+        return NO_PLAYER;
+    }
+
+    /**
+     * Disconnect the device from its player, releasing all inputs the player still holds.
+     * The player stays reserved for the device until another one needs it.
+     *
+     * @param eventTime The time of the removal in nanoseconds, passed along the released inputs
+     */
+    public void remove(int deviceId, long eventTime) {
+        int player = getPlayer(deviceId);
+        if (player == NO_PLAYER) return;
+
+        players[player].release(eventTime);
+        players[player].deviceId = NO_DEVICE;
+        if (listener != null) listener.onPlayerDisconnected(player, deviceId);
+    }
+
+    /**
+     * Exchange the devices of two players, Eg. when players pick their slot from a menu.
+     * Inputs held by both players are released first.
+     */
+    public void swap(int first, int second, long eventTime) {
+        if (first == second) return;
+        Player a = players[first], b = players[second];
+        a.release(eventTime);
+        b.release(eventTime);
+
+        int deviceId = a.deviceId;
+        String descriptor = a.descriptor;
+        a.deviceId = b.deviceId;
+        a.descriptor = b.descriptor;
+        b.deviceId = deviceId;
+        b.descriptor = descriptor;
+    }
+
+    /**
+     * @return The handler routing inputs to the player
+     */
+    TimedGamepadHandler getRouter(int player) {
+        return players[player];
+    }
+
+    /**
+     * Publish the state of the player if one of its inputs changed since the last call.
+     * Called once per source event, so a snapshot never holds half an event.
+     */
+    void endEvent(int player, long eventTime) {
+        players[player].publish(eventTime);
+    }
+
+    private static final class Player implements TimedGamepadHandler {
+        int deviceId = NO_DEVICE;
+        /* Descriptor of the last device driving the player, null if never used */
+        String descriptor;
+        TimedGamepadHandler handler;
+        volatile GamepadStateBuffer stateBuffer;
+        /* Last value passed for each code */
+        final float[] values = new float[StateVector.KEY_SLOT_COUNT];
+        boolean isDirty = false;
+
+        @Override
+        public void handleGamepadInput(int code, float value, long eventTime, int deviceId) {
+            int slot = StateVector.keySlot(code);
+            if (slot != StateVector.NO_SLOT) {
+                values[slot] = value;
+                isDirty = true;
+            }
+            if (handler != null) handler.handleGamepadInput(code, value, eventTime, deviceId);
+        }
+
+        void publish(long eventTime) {
+            if (!isDirty) return;
+            isDirty = false;
+            GamepadStateBuffer buffer = stateBuffer;
+            if (buffer != null) buffer.publish(values, eventTime);
+        }
+
+        /**
+         * Reset every input still active to 0, as if the gamepad was left untouched
+         */
+        void release(long eventTime) {
+            for (int code = 0; code < values.length; ++code) {
+                if (values[code] == 0) continue;
+                values[code] = 0;
+                isDirty = true;
+                if (handler != null) handler.handleGamepadInput(code, 0, eventTime, deviceId);
+            }
+            publish(eventTime);
+        }
+    }
+}
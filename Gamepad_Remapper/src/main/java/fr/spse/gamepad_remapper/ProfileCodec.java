@@ -0,0 +1,392 @@
+package fr.spse.gamepad_remapper;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Iterator;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary encoding of a remapper profile.
+ * <p>
+ * Layout: the "GMRP" magic, a version byte, then sections made of a tag byte, a varint length and a payload,
+ * until the end tag. A CRC32 of everything before it closes the data.
+ * Unknown sections are skipped, so newer sections can be added without breaking older readers.
+ * <p>
+ * Maps are stored as a varint count followed by zigzag varint (source, target) pairs,
+ * and are read straight into {@link MappingTable}s.
+ * <p>
+ * Free of Android classes, so it can be tested on the JVM.
+ */
+final class ProfileCodec {
+    static final int VERSION = 1;
+    /** Codes read are bounded, as {@link MappingTable}s are sized after the largest one */
+    static final int MAX_CODE = 0xFFFF;
+
+    private static final byte[] MAGIC = {'G', 'M', 'R', 'P'};
+    private static final int SECTION_END = 0;
+    private static final int SECTION_KEY_MAP = 1;
+    private static final int SECTION_MOTION_MAP = 2;
+    private static final int SECTION_AXIS_BINDINGS = 3;
+    private static final int SECTION_CALIBRATION = 4;
+
+    private ProfileCodec() {
+    }
+
+    /**
+     * Data read from a stored profile
+     */
+    static final class Profile {
+        MappingTable keyMap, motionMap;
+        AxisBindings axisBindings = AxisBindings.EMPTY;
+        AxisCalibration calibration = AxisCalibration.NONE;
+    }
+
+    /**
+     * Same as {@link #decode(byte[])}, reporting errors the way the JSON format did
+     *
+     * @throws JSONException If no profile is stored, or if it is invalid
+     */
+    static Profile decodeStored(byte[] data) throws JSONException {
+        if (data == null) throw new JSONException("No profile stored");
+        try {
+            return decode(data);
+        } catch (IllegalArgumentException e) {
+            throw new JSONException("Invalid profile: " + e.getMessage());
+        }
+    }
+
+    static byte[] encode(MappingTable keyMap, MappingTable motionMap) {
+        return encode(keyMap, motionMap, AxisBindings.EMPTY);
+    }
+
+    static byte[] encode(MappingTable keyMap, MappingTable motionMap, AxisBindings axisBindings) {
+        return encode(keyMap, motionMap, axisBindings, AxisCalibration.NONE);
+    }
+
+    static byte[] encode(MappingTable keyMap, MappingTable motionMap, AxisBindings axisBindings, AxisCalibration calibration) {
+        ByteWriter payload = new ByteWriter();
+        ByteWriter writer = new ByteWriter();
+        writer.writeBytes(MAGIC, MAGIC.length);
+        writer.writeByte(VERSION);
+
+        writeTable(payload, keyMap);
+        writer.writeSection(SECTION_KEY_MAP, payload);
+        writeTable(payload, motionMap);
+        writer.writeSection(SECTION_MOTION_MAP, payload);
+        // Only written when needed, so profiles without bindings stay readable by older versions as is
+        if (!axisBindings.isEmpty()) {
+            writeBindings(payload, axisBindings);
+            writer.writeSection(SECTION_AXIS_BINDINGS, payload);
+        }
+        if (!calibration.isEmpty()) {
+            writeCalibration(payload, calibration);
+            writer.writeSection(SECTION_CALIBRATION, payload);
+        }
+        writer.writeByte(SECTION_END);
+
+        CRC32 crc = new CRC32();
+        crc.update(writer.data, 0, writer.size);
+        writer.writeInt((int) crc.getValue());
+        return writer.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException If the data is not a valid profile
+     */
+    static Profile decode(byte[] data) {
+        return decode(data, 0, data.length);
+    }
+
+    /**
+     * @throws IllegalArgumentException If the data is not a valid profile
+     */
+    static Profile decode(byte[] data, int offset, int length) {
+        if (length < MAGIC.length + 1 + 1 + 4) throw new IllegalArgumentException("Profile too short");
+        for (int i = 0; i < MAGIC.length; ++i) {
+            if (data[offset + i] != MAGIC[i]) throw new IllegalArgumentException("Not a profile");
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length - 4);
+        ByteReader checksumReader = new ByteReader(data, offset + length - 4, offset + length);
+        if (checksumReader.readInt() != (int) crc.getValue()) throw new IllegalArgumentException("Checksum mismatch");
+
+        ByteReader reader = new ByteReader(data, offset + MAGIC.length, offset + length - 4);
+        int version = reader.readByte();
+        if (version > VERSION) throw new IllegalArgumentException("Unsupported version: " + version);
+
+        Profile profile = new Profile();
+        int tag;
+        while ((tag = reader.readByte()) != SECTION_END) {
+            int sectionLength = reader.readVarint();
+            if (sectionLength < 0 || sectionLength > reader.end - reader.position) throw new IllegalArgumentException("Truncated section");
+            ByteReader section = new ByteReader(data, reader.position, reader.position + sectionLength);
+            reader.position += sectionLength;
+
+            switch (tag) {
+                case SECTION_KEY_MAP:
+                    profile.keyMap = readTable(section);
+                    break;
+                case SECTION_MOTION_MAP:
+                    profile.motionMap = readTable(section);
+                    break;
+                case SECTION_AXIS_BINDINGS:
+                    profile.axisBindings = readBindings(section);
+                    break;
+                case SECTION_CALIBRATION:
+                    profile.calibration = readCalibration(section);
+                    break;
+                default: // Unknown section, written by a newer version
+                    break;
+            }
+        }
+
+        if (profile.keyMap == null || profile.motionMap == null) throw new IllegalArgumentException("Missing map");
+        return profile;
+    }
+
+    /**
+     * Read a profile stored in the SharedPreferences by previous versions, in the JSON format
+     *
+     * @throws JSONException If the stored profile is invalid
+     */
+    static Profile decodeLegacy(String data) throws JSONException {
+        JSONObject fusedMaps = new JSONObject(data);
+        Profile profile = new Profile();
+        profile.keyMap = readLegacyTable(fusedMaps.getJSONObject("keyMap"));
+        profile.motionMap = readLegacyTable(fusedMaps.getJSONObject("motionMap"));
+        return profile;
+    }
+
+    private static MappingTable readLegacyTable(JSONObject map) throws JSONException {
+        int[] sources = new int[map.length()];
+        int[] targets = new int[map.length()];
+        int i = 0;
+        Iterator<String> keysItr = map.keys();
+        while (keysItr.hasNext()) {
+            String key = keysItr.next();
+            try {
+                sources[i] = checkCode(Integer.parseInt(key));
+                targets[i] = checkCode(map.getInt(key));
+            } catch (IllegalArgumentException e) { // Also thrown for keys not being numbers
+                throw new JSONException("Invalid code: " + e.getMessage());
+            }
+            ++i;
+        }
+        return new MappingTable(sources, targets);
+    }
+
+    private static void writeTable(ByteWriter writer, MappingTable table) {
+        writer.writeVarint(table.size());
+        for (int i = 0; i < table.size(); ++i) {
+            writer.writeSignedVarint(table.sourceAt(i));
+            writer.writeSignedVarint(table.targetAt(i));
+        }
+    }
+
+    private static MappingTable readTable(ByteReader reader) {
+        int count = reader.readVarint();
+        // Each pair takes at least 2 bytes, avoid allocating huge arrays from corrupted data
+        if (count < 0 || count > (reader.end - reader.position) / 2) throw new IllegalArgumentException("Invalid map size");
+
+        int[] sources = new int[count];
+        int[] targets = new int[count];
+        for (int i = 0; i < count; ++i) {
+            sources[i] = checkCode(reader.readSignedVarint());
+            targets[i] = checkCode(reader.readSignedVarint());
+        }
+        return new MappingTable(sources, targets);
+    }
+
+    /**
+     * @throws IllegalArgumentException If the code is out of bounds, and would make a huge {@link MappingTable}
+     */
+    private static int checkCode(int code) {
+        if (code < -MAX_CODE || code > MAX_CODE) throw new IllegalArgumentException("Code out of bounds: " + code);
+        return code;
+    }
+
+    private static void writeBindings(ByteWriter writer, AxisBindings bindings) {
+        writer.writeVarint(bindings.axisSources.length);
+        for (int i = 0; i < bindings.axisSources.length; ++i) {
+            writer.writeSignedVarint(bindings.axisSources[i]);
+            writer.writeSignedVarint(bindings.axisDirections[i]);
+            writer.writeSignedVarint(bindings.keyTargets[i]);
+            writer.writeInt(Float.floatToIntBits(bindings.activationThresholds[i]));
+            writer.writeInt(Float.floatToIntBits(bindings.resetThresholds[i]));
+        }
+        writer.writeVarint(bindings.keySources.length);
+        for (int i = 0; i < bindings.keySources.length; ++i) {
+            writer.writeSignedVarint(bindings.keySources[i]);
+            writer.writeSignedVarint(bindings.axisTargets[i]);
+            writer.writeInt(Float.floatToIntBits(bindings.axisValues[i]));
+        }
+    }
+
+    /**
+     * Invalid bindings are reported as an IllegalArgumentException by the builder
+     */
+    private static AxisBindings readBindings(ByteReader reader) {
+        AxisBindings.Builder builder = new AxisBindings.Builder();
+        int count = reader.readVarint();
+        for (int i = 0; i < count; ++i) {
+            int axis = checkCode(reader.readSignedVarint());
+            int direction = reader.readSignedVarint();
+            int key = checkCode(reader.readSignedVarint());
+            float activationThreshold = Float.intBitsToFloat(reader.readInt());
+            float resetThreshold = Float.intBitsToFloat(reader.readInt());
+            builder.addAxisToKey(axis, direction, key, activationThreshold, resetThreshold);
+        }
+        count = reader.readVarint();
+        for (int i = 0; i < count; ++i) {
+            int key = checkCode(reader.readSignedVarint());
+            int axis = checkCode(reader.readSignedVarint());
+            builder.addKeyToAxis(key, axis, Float.intBitsToFloat(reader.readInt()));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Only the calibrated axis are written, as their axis code followed by the measured values
+     */
+    private static void writeCalibration(ByteWriter writer, AxisCalibration calibration) {
+        int count = 0;
+        for (float center : calibration.centers) {
+            if (!Float.isNaN(center)) ++count;
+        }
+        writer.writeVarint(count);
+        for (int slot = 0; slot < calibration.centers.length; ++slot) {
+            if (Float.isNaN(calibration.centers[slot])) continue;
+            writer.writeSignedVarint(GamepadCodes.SUPPORTED_AXIS[slot]);
+            writer.writeInt(Float.floatToIntBits(calibration.centers[slot]));
+            writer.writeInt(Float.floatToIntBits(calibration.noises[slot]));
+            writer.writeInt(Float.floatToIntBits(calibration.peaks[slot]));
+            writer.writeInt(Float.floatToIntBits(calibration.minimums[slot]));
+            writer.writeInt(Float.floatToIntBits(calibration.maximums[slot]));
+        }
+    }
+
+    private static AxisCalibration readCalibration(ByteReader reader) {
+        int slotCount = StateVector.AXIS_SLOT_COUNT;
+        float[] centers = new float[slotCount], noises = new float[slotCount], peaks = new float[slotCount];
+        float[] minimums = new float[slotCount], maximums = new float[slotCount];
+        for (int slot = 0; slot < slotCount; ++slot) {
+            centers[slot] = Float.NaN;
+            minimums[slot] = -1;
+            maximums[slot] = 1;
+        }
+
+        int count = reader.readVarint();
+        for (int i = 0; i < count; ++i) {
+            int slot = StateVector.axisSlot(reader.readSignedVarint());
+            if (slot == StateVector.NO_SLOT) throw new IllegalArgumentException("Invalid calibrated axis");
+            centers[slot] = Float.intBitsToFloat(reader.readInt());
+            noises[slot] = Float.intBitsToFloat(reader.readInt());
+            peaks[slot] = Float.intBitsToFloat(reader.readInt());
+            minimums[slot] = Float.intBitsToFloat(reader.readInt());
+            maximums[slot] = Float.intBitsToFloat(reader.readInt());
+        }
+        return new AxisCalibration(centers, noises, peaks, minimums, maximums);
+    }
+
+    /**
+     * Growable byte array
+     */
+    static final class ByteWriter {
+        byte[] data = new byte[64];
+        int size = 0;
+
+        private void ensureCapacity(int extra) {
+            if (size + extra <= data.length) return;
+            byte[] newData = new byte[Math.max(data.length * 2, size + extra)];
+            System.arraycopy(data, 0, newData, 0, size);
+            data = newData;
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            data[size++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, 0, data, size, length);
+            size += length;
+        }
+
+        /** Big endian */
+        void writeInt(int value) {
+            writeByte(value >>> 24);
+            writeByte(value >>> 16);
+            writeByte(value >>> 8);
+            writeByte(value);
+        }
+
+        void writeVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        void writeSignedVarint(int value) {
+            writeVarint((value << 1) ^ (value >> 31));
+        }
+
+        /** Write the payload as a section, then reset the payload */
+        void writeSection(int tag, ByteWriter payload) {
+            writeByte(tag);
+            writeVarint(payload.size);
+            writeBytes(payload.data, payload.size);
+            payload.size = 0;
+        }
+
+        byte[] toByteArray() {
+            byte[] bytes = new byte[size];
+            System.arraycopy(data, 0, bytes, 0, size);
+            return bytes;
+        }
+    }
+
+    /**
+     * Bounds checked reader over a byte array
+     */
+    static final class ByteReader {
+        final byte[] data;
+        final int end;
+        int position;
+
+        ByteReader(byte[] data, int position, int end) {
+            this.data = data;
+            this.position = position;
+            this.end = end;
+        }
+
+        int readByte() {
+            if (position >= end) throw new IllegalArgumentException("Unexpected end of profile");
+            return data[position++] & 0xFF;
+        }
+
+        /** Big endian */
+        int readInt() {
+            return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+        }
+
+        int readVarint() {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        int readSignedVarint() {
+            int value = readVarint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package fr.spse.gamepad_remapper;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Profiles stored as records of a single memory-mapped file, indexed by name.
+ * <p>
+ * Layout: a header, then records made of a state byte, the record length, the data length, a CRC32,
+ * the name and the data.
+ * <p>
+ * Records are never written over: saving a profile appends a new record, flushed to the storage before being
+ * marked as live, and only then is the previous record marked dead. Whenever a save is interrupted,
+ * the next load finds either the previous or the new version of the profile, complete.
+ * Once dead records take most of the file, live ones are copied to a new file, which atomically replaces the current one.
+ * <p>
+ * Opening, reading or saving a profile only touches that profile, whatever the amount stored.
+ */
+final class ProfileFile {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int MAGIC = 0x474D5253; // GMRS
+    private static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+
+    private static final byte STATE_FREE = 0;
+    private static final byte STATE_LIVE = 1;
+    private static final byte STATE_DEAD = 2;
+    /* State, record length, data length, CRC32, name length */
+    static final int RECORD_HEADER_SIZE = 1 + 4 + 4 + 4 + 2;
+
+    /* The file is mapped by steps of this size */
+    private static final int MAPPING_STEP = 16 * 1024;
+    /* Dead records are not worth compacting below this size */
+    private static final int COMPACTION_THRESHOLD = 16 * 1024;
+
+    private final File file;
+    private RandomAccessFile randomAccessFile;
+    private MappedByteBuffer buffer;
+
+    /* Record position per profile name */
+    private final HashMap<String, Integer> index = new HashMap<>();
+    /* Position right after the last record */
+    private int end;
+    /* Bytes taken by dead records */
+    private int wastedBytes;
+
+    ProfileFile(File file) {
+        this.file = file;
+        open();
+    }
+
+    synchronized boolean contains(String name) {
+        return index.containsKey(name);
+    }
+
+    /**
+     * @return The names of all stored profiles
+     */
+    synchronized String[] names() {
+        return index.keySet().toArray(new String[0]);
+    }
+
+    /**
+     * @return A copy of the profile data, or null if none is stored under the name
+     */
+    synchronized byte[] read(String name) {
+        Integer position = index.get(name);
+        if (position == null) return null;
+
+        byte[] data = new byte[buffer.getInt(position + 5)];
+        ByteBuffer view = buffer.duplicate();
+        view.position(dataOffset(position));
+        view.get(data);
+        return data;
+    }
+
+    /**
+     * Store the profile data under the name, replacing the previous one.
+     * The new record is flushed to the storage, the removal of the previous one may stay in memory
+     * until {@link #sync()} is called.
+     *
+     * @return Whether the data got written
+     */
+    synchronized boolean write(String name, byte[] data) {
+        if (buffer == null) return false;
+        byte[] nameBytes = name.getBytes(UTF_8);
+        if (nameBytes.length > 0xFFFF) throw new IllegalArgumentException("Profile name too long");
+
+        int slotLength = RECORD_HEADER_SIZE + nameBytes.length + data.length;
+        if (!ensureCapacity(end + slotLength + 1)) return false;
+
+        // The record stays free until complete, then live until the previous one is dead
+        int newPosition = end;
+        putRecord(buffer, newPosition, slotLength, nameBytes, data);
+        buffer.put(newPosition + slotLength, STATE_FREE);
+        buffer.force();
+        buffer.put(newPosition, STATE_LIVE);
+        buffer.force();
+        end += slotLength;
+
+        Integer position = index.put(name, newPosition);
+        if (position != null) kill(position);
+        if (wastedBytes > COMPACTION_THRESHOLD && wastedBytes > end / 2) compact();
+        return true;
+    }
+
+    synchronized void remove(String name) {
+        Integer position = index.remove(name);
+        if (position != null) kill(position);
+    }
+
+    /**
+     * Remove all profiles
+     */
+    synchronized void clear() {
+        if (buffer == null) return;
+        buffer.put(HEADER_SIZE, STATE_FREE);
+        buffer.force();
+        index.clear();
+        end = HEADER_SIZE;
+        wastedBytes = 0;
+    }
+
+    /**
+     * Flush the changes to the storage
+     *
+     * @return Whether the file is available
+     */
+    synchronized boolean sync() {
+        if (buffer == null) return false;
+        buffer.force();
+        return true;
+    }
+
+    private void open() {
+        new File(file.getPath() + ".tmp").delete(); // Leftover of an interrupted compaction
+        index.clear();
+        end = HEADER_SIZE;
+        wastedBytes = 0;
+        try {
+            randomAccessFile = new RandomAccessFile(file, "rw");
+            boolean isNew = randomAccessFile.length() < HEADER_SIZE;
+            buffer = map(Math.max((int) randomAccessFile.length(), HEADER_SIZE + 1));
+
+            if (!isNew && (buffer.getInt(0) != MAGIC || buffer.getInt(4) > VERSION)) {
+                Log.e(ProfileFile.class.toString(), "Unknown profile file, starting over");
+                isNew = true;
+            }
+            if (isNew) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.put(HEADER_SIZE, STATE_FREE);
+                buffer.force();
+                return;
+            }
+            scan();
+        } catch (IOException e) {
+            Log.e(ProfileFile.class.toString(), "Failed to open the profile file: " + e.getMessage());
+            buffer = null;
+        }
+    }
+
+    /**
+     * Rebuild the index from the records
+     */
+    private void scan() {
+        int position = HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= buffer.capacity()) {
+            byte state = buffer.get(position);
+            int slotLength = buffer.getInt(position + 1);
+            if (state == STATE_FREE || slotLength < RECORD_HEADER_SIZE || slotLength > buffer.capacity() - position) break;
+
+            if (state == STATE_LIVE) {
+                String name = readValidName(position, slotLength);
+                if (name == null) {
+                    kill(position);
+                } else {
+                    Integer previous = index.put(name, position);
+                    // Left over when interrupted between the append and the removal of the old record
+                    if (previous != null) kill(previous);
+                }
+            } else {
+                wastedBytes += slotLength;
+            }
+            position += slotLength;
+        }
+        end = position;
+    }
+
+    /**
+     * @return The name of the record, or null if the record is corrupted
+     */
+    private String readValidName(int position, int slotLength) {
+        int dataLength = buffer.getInt(position + 5);
+        int nameLength = buffer.getShort(position + 13) & 0xFFFF;
+        if (dataLength < 0 || dataLength > slotLength - RECORD_HEADER_SIZE - nameLength) return null;
+
+        byte[] nameBytes = new byte[nameLength];
+        byte[] data = new byte[dataLength];
+        ByteBuffer view = buffer.duplicate();
+        view.position(position + RECORD_HEADER_SIZE);
+        view.get(nameBytes);
+        view.get(data);
+        if (buffer.getInt(position + 9) != checksum(nameBytes, data)) return null;
+        return new String(nameBytes, UTF_8);
+    }
+
+    private void kill(int position) {
+        buffer.put(position, STATE_DEAD);
+        wastedBytes += buffer.getInt(position + 1);
+    }
+
+    /**
+     * Copy the live records to a new file, replacing the current one once complete
+     */
+    private void compact() {
+        int size = HEADER_SIZE + 1;
+        for (int position : index.values()) {
+            size += buffer.getInt(position + 1);
+        }
+
+        ByteBuffer compacted = ByteBuffer.allocate(size);
+        compacted.putInt(0, MAGIC);
+        compacted.putInt(4, VERSION);
+        int position = HEADER_SIZE;
+        for (int oldPosition : index.values()) {
+            int slotLength = buffer.getInt(oldPosition + 1);
+            ByteBuffer record = buffer.duplicate();
+            record.position(oldPosition).limit(oldPosition + slotLength);
+            compacted.position(position);
+            compacted.put(record);
+            position += slotLength;
+        }
+        compacted.put(position, STATE_FREE);
+
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(tempFile)) {
+            stream.write(compacted.array());
+            stream.getFD().sync();
+        } catch (IOException e) {
+            Log.e(ProfileFile.class.toString(), "Failed to compact the profile file: " + e.getMessage());
+            tempFile.delete();
+            return;
+        }
+
+        buffer.force();
+        closeFile();
+        if (!tempFile.renameTo(file)) {
+            Log.e(ProfileFile.class.toString(), "Failed to replace the profile file");
+        }
+        open();
+    }
+
+    private boolean ensureCapacity(int capacity) {
+        if (capacity <= buffer.capacity()) return true;
+        try {
+            buffer.force();
+            buffer = map(capacity + capacity / 2);
+            return true;
+        } catch (IOException e) {
+            Log.e(ProfileFile.class.toString(), "Failed to grow the profile file: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Map the file, growing it to at least the size
+     */
+    private MappedByteBuffer map(int size) throws IOException {
+        int mappedSize = (size + MAPPING_STEP - 1) / MAPPING_STEP * MAPPING_STEP;
+        return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, mappedSize);
+    }
+
+    private void closeFile() {
+        try {
+            randomAccessFile.close();
+        } catch (IOException e) {
+            Log.e(ProfileFile.class.toString(), "Failed to close the profile file: " + e.getMessage());
+        }
+        buffer = null;
+    }
+
+    /**
+     * Write the whole record except its state
+     */
+    private static void putRecord(ByteBuffer target, int position, int slotLength, byte[] nameBytes, byte[] data) {
+        target.putInt(position + 1, slotLength);
+        target.putInt(position + 5, data.length);
+        target.putInt(position + 9, checksum(nameBytes, data));
+        target.putShort(position + 13, (short) nameBytes.length);
+        ByteBuffer view = target.duplicate();
+        view.position(position + RECORD_HEADER_SIZE);
+        view.put(nameBytes);
+        view.put(data);
+    }
+
+    private int dataOffset(int position) {
+        return position + RECORD_HEADER_SIZE + (buffer.getShort(position + 13) & 0xFFFF);
+    }
+
+    private static int checksum(byte[] nameBytes, byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(nameBytes);
+        crc.update(data);
+        return (int) crc.getValue();
+    }
+}
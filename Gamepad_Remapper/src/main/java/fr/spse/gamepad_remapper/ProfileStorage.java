@@ -0,0 +1,257 @@
+package fr.spse.gamepad_remapper;
+
+import static fr.spse.gamepad_remapper.Remapper.SHARED_PREFERENCE_KEY;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONException;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists remapper profiles inside a {@link ProfileFile}, off the calling thread.
+ * Successive saves are coalesced: a profile saved several times in a short window is only written once,
+ * and all pending profiles are flushed to the storage at once.
+ * <p>
+ * Profiles are serialized by the caller, so the data written is the one at the time of the save.
+ * Reads see the pending saves, as if they were already written.
+ * <p>
+ * Profiles stored in the SharedPreferences by previous versions are moved to the file on the storage thread,
+ * accesses to the stored profiles wait for it to be done.
+ */
+final class ProfileStorage {
+    /* How long saves are held back, waiting for other ones */
+    private static final long COALESCE_DELAY_MS = 250;
+    private static final String PROFILE_FILE_NAME = "remapper_profiles.bin";
+
+    private static ProfileStorage instance;
+
+    private final ProfileFile profiles;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Remapper-storage");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    /* Profiles waiting to be written, guarded by this */
+    private final HashMap<String, byte[]> pendingSaves = new HashMap<>();
+    private boolean isFlushScheduled = false;
+    /* Held while taking data to write and writing it, so an older profile is never written over a newer one */
+    private final Object writeLock = new Object();
+    /* Done once the profiles of previous versions are in the file */
+    private final Future<?> migration;
+
+    private ProfileStorage(Context context) {
+        this(new ProfileFile(new File(context.getFilesDir(), PROFILE_FILE_NAME)), context);
+    }
+
+    /**
+     * @param context The context holding the profiles of previous versions, null to skip their migration
+     */
+    ProfileStorage(ProfileFile profiles, Context context) {
+        this.profiles = profiles;
+        migration = context == null
+                ? executor.submit(() -> {})
+                : executor.submit(() -> migrateSharedPreferences(context));
+    }
+
+    static synchronized ProfileStorage get(Context context) {
+        if (instance == null) {
+            instance = new ProfileStorage(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Schedule the profile data to be saved under the name, replacing any pending save of the same name.
+     */
+    synchronized void save(String name, byte[] data) {
+        pendingSaves.put(name, data);
+        if (isFlushScheduled) return;
+
+        isFlushScheduled = true;
+        executor.schedule((Runnable) this::flush, COALESCE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Write the profile data under the name right away, replacing any pending save of the same name.
+     * Waits for a flush in progress, which may hold older data of the same name.
+     *
+     * @return false if the data could not be written, it is then kept as a pending save
+     */
+    boolean write(String name, byte[] data) {
+        awaitMigration();
+        synchronized (writeLock) {
+            byte[] pendingData;
+            synchronized (this) {
+                pendingData = pendingSaves.get(name);
+            }
+            boolean isWritten = profiles.write(name, data) && profiles.sync();
+            // Only now, so reads never fall back to older data. A save made meanwhile is newer, keep it
+            synchronized (this) {
+                if (pendingSaves.get(name) == pendingData) {
+                    if (isWritten) pendingSaves.remove(name);
+                    else pendingSaves.put(name, data);
+                }
+            }
+            if (!isWritten) {
+                Log.e(ProfileStorage.class.toString(), "Failed to write the following remapper, kept for the next flush:" + name);
+            }
+            return isWritten;
+        }
+    }
+
+    /**
+     * Write all pending saves right away, on the calling thread.
+     * The ones failing to be written stay pending, for the next flush to retry.
+     *
+     * @return false if some pending saves could not be written
+     */
+    boolean flush() {
+        awaitMigration();
+        synchronized (writeLock) {
+            Map<String, byte[]> saves;
+            synchronized (this) {
+                saves = new HashMap<>(pendingSaves);
+                isFlushScheduled = false;
+            }
+            if (saves.isEmpty()) return true;
+
+            List<String> writtenNames = new ArrayList<>(saves.size());
+            for (Map.Entry<String, byte[]> save : saves.entrySet()) {
+                if (profiles.write(save.getKey(), save.getValue())) writtenNames.add(save.getKey());
+            }
+            if (!profiles.sync()) writtenNames.clear();
+            synchronized (this) {
+                for (String name : writtenNames) {
+                    if (pendingSaves.get(name) == saves.get(name)) pendingSaves.remove(name);
+                }
+            }
+            if (writtenNames.size() == saves.size()) return true;
+
+            Log.e(ProfileStorage.class.toString(), "Failed to write " + (saves.size() - writtenNames.size())
+                    + " remappers, kept for the next flush");
+            return false;
+        }
+    }
+
+    /**
+     * @return The profile data, pending or stored, or null if none is saved under the name
+     */
+    byte[] read(String name) {
+        synchronized (this) {
+            byte[] data = pendingSaves.get(name);
+            if (data != null) return data;
+        }
+        awaitMigration();
+        return profiles.read(name);
+    }
+
+    boolean contains(String name) {
+        synchronized (this) {
+            if (pendingSaves.containsKey(name)) return true;
+        }
+        awaitMigration();
+        return profiles.contains(name);
+    }
+
+    /**
+     * @return The names of all profiles, pending or stored
+     */
+    String[] names() {
+        Set<String> names;
+        synchronized (this) {
+            names = new HashSet<>(pendingSaves.keySet());
+        }
+        awaitMigration();
+        for (String name : profiles.names()) names.add(name);
+        return names.toArray(new String[0]);
+    }
+
+    /**
+     * Remove all stored profiles, as well as the ones not written yet
+     */
+    void clear() {
+        awaitMigration();
+        synchronized (writeLock) {
+            discardPendingSaves();
+            profiles.clear();
+        }
+    }
+
+    /**
+     * Run the task on the storage thread
+     */
+    void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * Forget about saves not written yet
+     */
+    synchronized void discardPendingSaves() {
+        pendingSaves.clear();
+    }
+
+    /**
+     * Block until the profiles of previous versions are in the file. Immediate once done.
+     */
+    private void awaitMigration() {
+        try {
+            migration.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.e(ProfileStorage.class.toString(), "Failed to migrate the profiles: " + e.getCause());
+        }
+    }
+
+    /**
+     * Move the profiles stored by previous versions to the profile file.
+     * A profile is only removed from the SharedPreferences once written and synced to the file,
+     * the ones failing to migrate are kept.
+     */
+    private void migrateSharedPreferences(Context context) {
+        SharedPreferences preferences = context.getSharedPreferences(SHARED_PREFERENCE_KEY, Context.MODE_PRIVATE);
+        Map<String, ?> entries = preferences.getAll();
+        if (entries.isEmpty()) return;
+
+        List<String> migratedNames = new ArrayList<>();
+        for (Map.Entry<String, ?> entry : entries.entrySet()) {
+            if (!(entry.getValue() instanceof String)) continue;
+            // Already migrated, the preferences were not cleared. The file may hold a newer version
+            if (profiles.contains(entry.getKey())) {
+                migratedNames.add(entry.getKey());
+                continue;
+            }
+            try {
+                ProfileCodec.Profile profile = ProfileCodec.decodeLegacy((String) entry.getValue());
+                if (!profiles.write(entry.getKey(), ProfileCodec.encode(profile.keyMap, profile.motionMap))) return;
+                migratedNames.add(entry.getKey());
+            } catch (JSONException e) {
+                Log.e(ProfileStorage.class.toString(), "Could not migrate the following remapper:" + entry.getKey());
+            }
+        }
+        if (migratedNames.isEmpty() || !profiles.sync()) return;
+
+        SharedPreferences.Editor editor = preferences.edit();
+        for (String name : migratedNames) editor.remove(name);
+        if (!editor.commit()) {
+            Log.e(ProfileStorage.class.toString(), "Failed to remove the migrated remappers from the preferences");
+        }
+    }
+}
@@ -1,44 +1,23 @@
 package fr.spse.gamepad_remapper;
 
-import static android.view.KeyEvent.KEYCODE_DPAD_CENTER;
-import static android.view.KeyEvent.KEYCODE_DPAD_DOWN;
-import static android.view.KeyEvent.KEYCODE_DPAD_LEFT;
-import static android.view.KeyEvent.KEYCODE_DPAD_RIGHT;
-import static android.view.KeyEvent.KEYCODE_DPAD_UP;
 import static android.view.KeyEvent.KEYCODE_UNKNOWN;
-import static android.view.MotionEvent.AXIS_BRAKE;
-import static android.view.MotionEvent.AXIS_HAT_X;
-import static android.view.MotionEvent.AXIS_HAT_Y;
-import static android.view.MotionEvent.AXIS_LTRIGGER;
-import static android.view.MotionEvent.AXIS_RTRIGGER;
-import static android.view.MotionEvent.AXIS_RX;
-import static android.view.MotionEvent.AXIS_RY;
-import static android.view.MotionEvent.AXIS_RZ;
-import static android.view.MotionEvent.AXIS_THROTTLE;
-import static android.view.MotionEvent.AXIS_X;
-import static android.view.MotionEvent.AXIS_Y;
-import static android.view.MotionEvent.AXIS_Z;
-
-import static fr.spse.gamepad_remapper.Settings.SUPPORTED_AXIS;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.os.Build;
 import android.util.ArrayMap;
-import android.util.Log;
-import android.util.SparseArray;
+import android.util.Base64;
 import android.view.InputDevice;
+import android.view.InputEvent;
 import android.view.KeyEvent;
 import android.view.MotionEvent;
 
 import org.json.JSONException;
-import org.json.JSONObject;
 
-import java.util.Iterator;
 import java.util.Map;
 
 /**
- * Class able to map inputs from one way or another
+ * Class able to map inputs from one way or another.
+ * Adapts Android input events to the {@link RemapperCore}, which holds the remapping logic.
  */
 public class Remapper {
 
@@ -51,165 +30,264 @@ public class Remapper {
     private static final int DPAD_DOWN = -12;
     private static final int DPAD_LEFT = -13;
 
-    private static final float AXIS_TO_KEY_ACTIVATION_THRESHOLD = 0.6f;
-    private static final float AXIS_TO_KEY_RESET_THRESHOLD = 0.4f;
+    private final RemapperCore core;
+    /* Reads the axis of the MotionEvent being processed, reused for all events */
+    private final MotionEventSamples motionSamples = new MotionEventSamples();
 
-    private final Map<Integer, Integer> keyMap, motionMap;
-    private final Map<Integer, Integer> reverseKeyMap = new ArrayMap<>();
-    private final Map<Integer, Integer> reverseMotionMap = new ArrayMap<>();
+    /* Device and generation the deadzones of the core come from */
+    private int deadzoneDeviceId, deadzoneGeneration;
+    private boolean hasDeadzones = false;
 
-    /* Store current buttons value */
-    private final SparseArray<Float> currentKeyValues = new SparseArray<>();
-    private final SparseArray<Float> currentMotionValues = new SparseArray<>();
+    /* Wraps the last GamepadHandler used, to avoid allocating on each event */
+    private GamepadHandlerAdapter handlerAdapter;
 
     public Remapper(Map<Integer, Integer> keyMap, Map<Integer, Integer> motionMap) {
-        this.keyMap = keyMap;
-        this.motionMap = motionMap;
+        this(MappingTable.from(keyMap), MappingTable.from(motionMap));
+    }
 
-        for (Map.Entry<Integer, Integer> entry : keyMap.entrySet()) {
-            reverseKeyMap.put(entry.getValue(), entry.getKey());
-        }
-        for (Map.Entry<Integer, Integer> entry : motionMap.entrySet()) {
-            reverseMotionMap.put(entry.getValue(), entry.getKey());
-        }
+    Remapper(MappingTable keyMap, MappingTable motionMap) {
+        core = new RemapperCore(keyMap, motionMap);
+    }
+
+    Remapper(ProfileCodec.Profile profile) {
+        this(profile.keyMap, profile.motionMap);
+        core.setAxisBindings(profile.axisBindings);
+        core.setCalibration(profile.calibration);
     }
 
     /**
-     * Load the default Remapper data from the shared preferences
+     * Load the default Remapper data from the profile storage
      *
-     * @param context A context object, necessary to fetch SharedPreferences
+     * @param context A context object, necessary to locate the profile storage
      */
     public Remapper(Context context) throws JSONException {
         this(context, "default_map");
     }
 
     /**
-     * Load the Remapper data from the shared preferences
+     * Load the Remapper data from the profile storage
      *
-     * @param context A context object, necessary to fetch SharedPreferences
+     * @param context A context object, necessary to locate the profile storage
      * @param name    The name of the map stored
      */
     public Remapper(Context context, String name) throws JSONException {
-        keyMap = new ArrayMap<>();
-        motionMap = new ArrayMap<>();
-        SharedPreferences sharedPreferences = context.getSharedPreferences(SHARED_PREFERENCE_KEY, Context.MODE_PRIVATE);
-
-        JSONObject fusedMaps = new JSONObject(sharedPreferences.getString(name, ""));
-        JSONObject keyMap = fusedMaps.getJSONObject("keyMap");
-        JSONObject motionMap = fusedMaps.getJSONObject("motionMap");
-
-        Iterator<String> keysItr = keyMap.keys();
-        while (keysItr.hasNext()) {
-            String key = keysItr.next();
-            int value = keyMap.getInt(key);
-            this.keyMap.put(Integer.valueOf(key), value);
-        }
+        this(ProfileCodec.decodeStored(ProfileStorage.get(context).read(name)));
+        InputDeviceWatcher.watch(context);
+    }
 
-        keysItr = motionMap.keys();
-        while (keysItr.hasNext()) {
-            String key = keysItr.next();
-            int value = motionMap.getInt(key);
-            this.motionMap.put(Integer.valueOf(key), value);
-        }
+    /**
+     * Removes all current preferences from the data
+     */
+    public static void wipePreferences(Context context) {
 
-        for (Map.Entry<Integer, Integer> entry : this.keyMap.entrySet()) {
-            reverseKeyMap.put(entry.getValue(), entry.getKey());
-        }
-        for (Map.Entry<Integer, Integer> entry : this.motionMap.entrySet()) {
-            reverseMotionMap.put(entry.getValue(), entry.getKey());
+        ProfileStorage.get(context).clear();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            context.deleteSharedPreferences(SHARED_PREFERENCE_KEY);
+        } else {
+            context.getSharedPreferences(SHARED_PREFERENCE_KEY, Context.MODE_PRIVATE).edit().clear().apply();
         }
     }
 
     /**
-     * Changes the dpad value by another value with the same meaning.
-     * It is done because some axis share the same value as KEYCODE_DPAD_XX
+     * Saves the Remapper data inside the profile storage
      *
-     * @param keycode The keycode to transform
+     * @param context A context object, necessary to locate the profile storage
      */
-    static int transformKeyEventInput(int keycode) {
-        if (keycode == KEYCODE_DPAD_UP || keycode == KEYCODE_DPAD_DOWN) return AXIS_HAT_Y;
-        if (keycode == KEYCODE_DPAD_RIGHT || keycode == KEYCODE_DPAD_LEFT) return AXIS_HAT_X;
-        return keycode;
+    public void save(Context context) {
+        save(context, "default_map");
     }
 
+
     /**
-     * Removes all current preferences from the data
+     * Saves the Remapper data inside the profile storage, on the calling thread.
+     * Data failing to be written is kept, and retried by the next {@link #flushProfiles(Context)}.
+     *
+     * @param context A context object, necessary to locate the profile storage
+     * @param name    The name for the file.
      */
-    public static void wipePreferences(Context context) {
+    public void save(Context context, String name) {
+        ProfileStorage.get(context).write(name, serialize());
+    }
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
-            context.deleteSharedPreferences(SHARED_PREFERENCE_KEY);
-        } else {
-            SharedPreferences sharedPreferences = context.getSharedPreferences(SHARED_PREFERENCE_KEY, Context.MODE_PRIVATE);
-            for (String key : sharedPreferences.getAll().keySet()) {
-                sharedPreferences.edit().remove(key).apply();
-            }
-        }
+    /**
+     * Same as {@link #save(Context, String)}, but writes the data on a background thread.
+     * The data is serialized on the calling thread, changes made after the call are not part of this save.
+     * Successive saves within a short window are coalesced into a single write.
+     *
+     * @param context A context object, necessary to locate the profile storage
+     * @param name    The name for the file.
+     */
+    public void saveAsync(Context context, String name) {
+        ProfileStorage.get(context).save(name, serialize());
     }
 
-    private static float getDeadzone(MotionEvent event, int axis) {
-        try {
-            InputDevice.MotionRange range = event.getDevice().getMotionRange(axis, InputDevice.SOURCE_JOYSTICK);
-            float deadzone = 0;
-            if (range != null) {
-                deadzone = range.getFlat() * Settings.getDeadzoneScale();
-            }
-            return Math.max(deadzone, Settings.DEADZONE_MIN * Settings.getDeadzoneScale());
-        } catch (Exception e) {
-            Log.e(Remapper.class.toString(), "Dynamic Deadzone is not supported ");
-            return 0.2f;
+    /**
+     * Write the saves made by {@link #saveAsync(Context, String)} and still pending, on the calling thread.
+     * Meant for when the app may be killed, like in {@code onPause()} or {@code onTrimMemory()}.
+     *
+     * @param context A context object, necessary to locate the profile storage
+     * @return false if some profiles could not be written, they are retried on the next flush
+     */
+    public static boolean flushProfiles(Context context) {
+        return ProfileStorage.get(context).flush();
+    }
+
+    /**
+     * Get all stored profiles, for debugging or sharing purposes
+     *
+     * @param context A context object, necessary to locate the profile storage
+     * @return The stored data of each profile, encoded in Base64, per name
+     */
+    public static Map<String, String> exportProfiles(Context context) {
+        ProfileStorage storage = ProfileStorage.get(context);
+        ArrayMap<String, String> profiles = new ArrayMap<>();
+        for (String name : storage.names()) {
+            byte[] data = storage.read(name);
+            if (data != null) profiles.put(name, Base64.encodeToString(data, Base64.NO_WRAP));
         }
+        return profiles;
     }
 
-    private static double getMagnitude(float x, float y) {
-        return RemapperUtils.dist(0, 0, Math.abs(x), Math.abs(y));
+    /**
+     * @return The remapper data, as stored in the profile storage
+     */
+    byte[] serialize() {
+        return ProfileCodec.encode(core.keyMap, core.motionMap, core.getAxisBindings(), core.getCalibration());
     }
 
     /**
-     * Saves the Remapper data inside its own shared preference file
+     * Enable the processing of the historical samples Android batches inside each MotionEvent.
+     * Samples are processed in chronological order, and passed at once if the handler is a {@link BatchGamepadHandler}.
      *
-     * @param context A context object, necessary to fetch SharedPreferences
+     * @param enabled Whether historical samples are processed. Default is false, only the current values are read.
      */
-    public void save(Context context) {
-        save(context, "default_map");
+    public void setHistoricalSamplesEnabled(boolean enabled) {
+        core.setHistoricalSamplesEnabled(enabled);
     }
 
+    /**
+     * Record the events processed by this remapper, see {@link RemapperMetrics}.
+     * A single instance can be shared by remappers used from the same thread.
+     *
+     * @param metrics Where to record, or null to stop recording. Default is null.
+     */
+    public void setMetrics(RemapperMetrics metrics) {
+        core.setMetrics(metrics);
+    }
+
+    /**
+     * @see RemapperCore#resetInputs(long)
+     */
+    void resetInputs(long eventTime) {
+        core.resetInputs(eventTime);
+    }
 
     /**
-     * Saves the Remapper data inside its own shared preference file
+     * Set the conversions between axis and keys, saved along the mappings.
+     * Axis mapped to keys through the RemapperView are converted as well, unless bound here.
+     */
+    public void setAxisBindings(AxisBindings bindings) {
+        core.setAxisBindings(bindings);
+    }
+
+    public AxisBindings getAxisBindings() {
+        return core.getAxisBindings();
+    }
+
+    /**
+     * Set the calibration of the gamepad, saved along the mappings.
+     * Calibrated axis rest at 0, span their whole range, and use the deadzone measured at rest.
+     * Deadzones never go below {@link Settings#DEADZONE_MIN}, scaled like the other ones.
+     */
+    public void setCalibration(AxisCalibration calibration) {
+        core.setCalibration(calibration);
+        hasDeadzones = false;
+    }
+
+    public AxisCalibration getCalibration() {
+        return core.getCalibration();
+    }
+
+    /**
+     * Set the range of all supported axis of the calibration, as declared by the device
      *
-     * @param context A context object, necessary to fetch SharedPreferences
-     * @param name    The name for the file.
+     * @return The builder, for chaining
      */
-    public void save(Context context, String name) {
-        SharedPreferences preferences = context.getSharedPreferences(SHARED_PREFERENCE_KEY, Context.MODE_PRIVATE);
-        JSONObject keyMap = new JSONObject();
-        for (Map.Entry<Integer, Integer> entry : this.keyMap.entrySet()) {
-            try {
-                keyMap.put(String.valueOf(entry.getKey()), entry.getValue());
-            } catch (JSONException e) {
-                Log.e(Remapper.class.toString(), "Failed to save to shared preferences");
-            }
+    public static AxisCalibration.Builder setCalibrationRanges(AxisCalibration.Builder builder, InputDevice device) {
+        for (int axis : GamepadCodes.SUPPORTED_AXIS) {
+            InputDevice.MotionRange range = device.getMotionRange(axis, InputDevice.SOURCE_JOYSTICK);
+            if (range != null && range.getMin() < range.getMax()) builder.setRange(axis, range.getMin(), range.getMax());
         }
+        return builder;
+    }
 
-        JSONObject motionMap = new JSONObject();
-        for (Map.Entry<Integer, Integer> entry : this.motionMap.entrySet()) {
-            try {
-                motionMap.put(String.valueOf(entry.getKey()), entry.getValue());
-            } catch (JSONException e) {
-                Log.e(Remapper.class.toString(), "Failed to save to shared preferences");
-            }
-        }
+    /**
+     * Set how the left stick responds, {@link StickResponse#DEFAULT} by default
+     */
+    public void setLeftStickResponse(StickResponse response) {
+        core.setLeftStickResponse(response);
+    }
 
-        JSONObject fusedMaps = new JSONObject();
-        try {
-            fusedMaps.put("keyMap", keyMap);
-            fusedMaps.put("motionMap", motionMap);
-        } catch (JSONException e) {
-            e.printStackTrace();
-        }
+    /**
+     * Set how the right stick responds, {@link StickResponse#DEFAULT} by default
+     */
+    public void setRightStickResponse(StickResponse response) {
+        core.setRightStickResponse(response);
+    }
+
+    /**
+     * Set how the left trigger responds, {@link TriggerResponse#DEFAULT} by default
+     */
+    public void setLeftTriggerResponse(TriggerResponse response) {
+        core.setLeftTriggerResponse(response);
+    }
 
-        preferences.edit().putString(name, fusedMaps.toString()).apply();
+    /**
+     * Set how the right trigger responds, {@link TriggerResponse#DEFAULT} by default
+     */
+    public void setRightTriggerResponse(TriggerResponse response) {
+        core.setRightTriggerResponse(response);
+    }
+
+    /**
+     * Only pass the values of an axis which moved by at least the threshold since the last value passed.
+     * Values at rest or at the extremes are always passed. Applies to the remapped axis.
+     *
+     * @param axis      The remapped axis, one of {@link GamepadCodes#SUPPORTED_AXIS}
+     * @param threshold The minimal change, between 0 and 1. Default is 0, any change is passed.
+     */
+    public void setAxisChangeThreshold(int axis, float threshold) {
+        core.setAxisChangeThreshold(axis, threshold);
+    }
+
+    /**
+     * Round the values of an axis to a multiple of the step before comparing them to the last value passed.
+     * Applies to the remapped axis.
+     *
+     * @param axis The remapped axis, one of {@link GamepadCodes#SUPPORTED_AXIS}
+     * @param step The quantization step, Eg. 1/256f. Default is 0, values are left untouched.
+     */
+    public void setAxisQuantization(int axis, float step) {
+        core.setAxisQuantization(axis, step);
+    }
+
+    /**
+     * Enable the publication of a {@link GamepadState} after each event, see {@link #getGamepadState()}
+     *
+     * @param enabled Whether the state is published. Default is false.
+     */
+    public void setGamepadStateEnabled(boolean enabled) {
+        core.setGamepadStateEnabled(enabled);
+    }
+
+    /**
+     * Get the latest snapshot of all remapped inputs, without ever blocking the input thread.
+     * The snapshot stays untouched until the next call, so this must be called from a single thread.
+     *
+     * @return The latest published state, or null if not enabled through {@link #setGamepadStateEnabled(boolean)}
+     */
+    public GamepadState getGamepadState() {
+        return core.getGamepadState();
     }
 
     /**
@@ -221,46 +299,45 @@ public class Remapper {
      * @return Whether the input was handled or not.
      */
     public boolean handleMotionEventInput(MotionEvent event, GamepadHandler handler) {
-        if (!RemapperView.isGamepadMotionEvent(event)) return false;
-
-        handleMotionIfDifferent(AXIS_HAT_X, getRemappedValue(AXIS_HAT_X, event), handler);
-        handleMotionIfDifferent(AXIS_HAT_Y, getRemappedValue(AXIS_HAT_Y, event), handler);
-        handleMotionIfDifferent(AXIS_RTRIGGER, getRemappedValue(AXIS_RTRIGGER, event), handler);
-        handleMotionIfDifferent(AXIS_LTRIGGER, getRemappedValue(AXIS_LTRIGGER, event), handler);
-
-        handleJoystickInput(event, handler, AXIS_X, AXIS_Y);
-        handleJoystickInput(event, handler, AXIS_Z, AXIS_RZ);
-        return true;
+        return handleMotionEventInput(event, adapt(handler));
     }
 
     /**
-     * Same as the handleMotionEvent but applies a deadzone
+     * If the event is a valid Gamepad event, call the TimedGamepadHandler method.
+     * Note that the handler won't be called if there is no value change.
+     *
+     * @param event   The current MotionEvent
+     * @param handler The handler, through which remapped inputs will be passed.
+     * @return Whether the input was handled or not.
      */
-    private void handleJoystickInput(MotionEvent event, GamepadHandler handler, int horizontalAxis, int verticalAxis) {
-        float x = getRemappedValue(horizontalAxis, event);
-        float y = getRemappedValue(verticalAxis, event);
-
-        double magnitude = getMagnitude(x, y);
-        float deadzone = getDeadzone(event, getRemappedSource(event, horizontalAxis)); // FIXME should we query both axis ?
-        if (magnitude < deadzone) {
-            x = 0;
-            y = 0;
-        } else {
-            // compensate the value for deadzone
-            x = (float) ((x / magnitude) * ((magnitude - deadzone) / (1 - deadzone)));
-            y = (float) ((y / magnitude) * ((magnitude - deadzone) / (1 - deadzone)));
+    public boolean handleMotionEventInput(MotionEvent event, TimedGamepadHandler handler) {
+        if (!RemapperView.isGamepadMotionEvent(event)) return false;
+
+        updateDeadzones(event);
+        motionSamples.event = event;
+        try {
+            core.handleMotionInput(motionSamples, handler);
+        } finally {
+            motionSamples.event = null;
         }
-        
-        handleMotionIfDifferent(horizontalAxis, x, handler);
-        handleMotionIfDifferent(verticalAxis, y, handler);
+        return true;
     }
 
-    private void handleMotionIfDifferent(int mappedSource, float value, GamepadHandler handler) {
-        Float lastValue = currentMotionValues.get(mappedSource);
-        if (lastValue == null || lastValue != value) {
-            handler.handleGamepadInput(mappedSource, value);
-            currentMotionValues.put(mappedSource, value);
-        }
+    /**
+     * Pass the deadzones of the device to the core, only querying them when the device changes
+     */
+    private void updateDeadzones(MotionEvent event) {
+        int generation = DeadzoneCache.getGeneration();
+        if (hasDeadzones && event.getDeviceId() == deadzoneDeviceId && generation == deadzoneGeneration) return;
+
+        float[] deadzones = DeadzoneCache.get(event);
+        AxisCalibration calibration = core.getCalibration();
+        float minDeadzone = Settings.DEADZONE_MIN * Settings.getDeadzoneScale();
+        if (!calibration.isEmpty()) deadzones = calibration.mergeDeadzones(deadzones, Settings.getDeadzoneScale(), minDeadzone);
+        core.setDeadzones(deadzones, minDeadzone);
+        deadzoneDeviceId = event.getDeviceId();
+        deadzoneGeneration = generation;
+        hasDeadzones = true;
     }
 
     /**
@@ -271,83 +348,72 @@ public class Remapper {
      * @return Whether the input was handled or not.
      */
     public boolean handleKeyEventInput(KeyEvent event, GamepadHandler handler) {
+        return handleKeyEventInput(event, adapt(handler));
+    }
+
+    /**
+     * If the event is a valid Gamepad event, call the TimedGamepadHandler method
+     *
+     * @param event   The current KeyEvent
+     * @param handler The handler, through which remapped inputs will be passed.
+     * @return Whether the input was handled or not.
+     */
+    public boolean handleKeyEventInput(KeyEvent event, TimedGamepadHandler handler) {
         if (!RemapperView.isGamepadKeyEvent(event)) return false;
         if (event.getKeyCode() == KEYCODE_UNKNOWN) return false;
         if (event.getRepeatCount() > 0) return false;
 
-        int mappedSource = getRemappedSource(event);
-        float currentValue = getRemappedValue(mappedSource, event);
-        Float lastValue = currentKeyValues.get(mappedSource);
-        if (lastValue == null || currentValue != lastValue) {
-            handler.handleGamepadInput(mappedSource, currentValue);
-            currentKeyValues.put(mappedSource, currentValue);
-        }
+        boolean isPressed = event.getAction() == KeyEvent.ACTION_DOWN || event.getAction() == KeyEvent.ACTION_MULTIPLE;
+        core.handleKeyInput(event.getKeyCode(), isPressed, getEventTimeNanos(event), event.getDeviceId(), handler);
         return true;
     }
 
     /**
-     * If remapped, get the mapped source from keyEvent
+     * @return The time of the event, in nanoseconds. Only accurate to the millisecond before Android 14.
      */
-    private int getRemappedSource(KeyEvent event) {
-        int translatedSource = transformKeyEventInput(event.getKeyCode());
-        Integer mappedValue = keyMap.get(translatedSource);
-        return mappedValue == null ? translatedSource : mappedValue;
+    static long getEventTimeNanos(InputEvent event) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) return event.getEventTimeNanos();
+        return event.getEventTime() * 1_000_000L;
     }
 
     /**
-     * If remapped, get the mapped source from MotionEvent
+     * @return A timed handler passing inputs down to the handler
      */
-    private int getRemappedSource(MotionEvent event, int axisSource) {
-        Integer mappedValue = reverseMotionMap.get(axisSource);
-        return mappedValue == null ? axisSource : mappedValue;
-    }
-
-    /**
-     * Get the converted value for the given mapped source
-     */
-    private static float getRemappedValue(int mappedSource, KeyEvent keyEvent) {
-        if (keyEvent.getAction() == KeyEvent.ACTION_DOWN || keyEvent.getAction() == KeyEvent.ACTION_MULTIPLE) {
-            // Special case for DPADs, there are never remapped to anything else. So we consider them properly mapped.
-            if ((mappedSource == AXIS_HAT_Y && keyEvent.getKeyCode() == KEYCODE_DPAD_UP)
-                    || (mappedSource == AXIS_HAT_X && keyEvent.getKeyCode() == KEYCODE_DPAD_LEFT)
-            ) {
-                return -1f;
-            }
-            return 1f;
+    private TimedGamepadHandler adapt(GamepadHandler handler) {
+        if (handlerAdapter == null || handlerAdapter.handler != handler) {
+            handlerAdapter = new GamepadHandlerAdapter(handler);
         }
-        return 0f;
+        return handlerAdapter;
     }
 
     /**
-     * Get the converted value for the given mapped source
+     * Exposes the samples of a MotionEvent to the core
      */
-    private float getRemappedValue(int orignalSource, MotionEvent motionEvent) {
-        int mappedSource = getRemappedSource(motionEvent, orignalSource);
+    private static final class MotionEventSamples implements MotionSamples {
+        MotionEvent event;
 
-        if (isAxis(mappedSource)) {
-            return motionEvent.getAxisValue(mappedSource);
+        @Override
+        public int getDeviceId() {
+            return event.getDeviceId();
         }
 
-        // Else, convert to a keyEvent action
-        // Assume that only one button is mapped to the final value
-        // Since the even is converted back into a "keyevent", the values are 0 or 1
-        boolean isEnabled = currentMotionValues.get(orignalSource, 0.0f) == 1.0f;
-        float absoluteValue = Math.abs(motionEvent.getAxisValue(mappedSource));
-        if (isEnabled) {
-            return  absoluteValue >= AXIS_TO_KEY_RESET_THRESHOLD ? 1 : 0;
-        } else {
-            return absoluteValue >= AXIS_TO_KEY_ACTIVATION_THRESHOLD ? 1 : 0;
+        @Override
+        public int getHistorySize() {
+            return event.getHistorySize();
         }
-    }
 
-    /**
-     * @return Whether the input source is a **gamepad** axis.
-     */
-    private boolean isAxis(int inputSource) {
-        for (int axis : SUPPORTED_AXIS) {
-            if (axis == inputSource) return true;
+        @Override
+        public long getSampleTime(int sample) {
+            if (sample == CURRENT_SAMPLE) return getEventTimeNanos(event);
+            // Same resolution as the current sample, so times never go back
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) return event.getHistoricalEventTimeNanos(sample);
+            return event.getHistoricalEventTime(sample) * 1_000_000L;
+        }
+
+        @Override
+        public float getAxisValue(int axis, int sample) {
+            if (sample == CURRENT_SAMPLE) return event.getAxisValue(axis);
+            return event.getHistoricalAxisValue(axis, sample);
         }
-        return false;
     }
 }
-
@@ -0,0 +1,551 @@
+package fr.spse.gamepad_remapper;
+
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_HAT_X;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_HAT_Y;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_LTRIGGER;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_RTRIGGER;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_RZ;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_X;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_Y;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_Z;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_DPAD_DOWN;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_DPAD_LEFT;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_DPAD_RIGHT;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_DPAD_UP;
+import static fr.spse.gamepad_remapper.MotionSamples.CURRENT_SAMPLE;
+
+import java.util.Map;
+
+/**
+ * Remapping logic, independent from the Android input classes.
+ * Inputs are passed as primitives: keycodes with their state, and axis values read through {@link MotionSamples}.
+ * Handles the mapping, the joystick deadzones, the axis to key conversion and only reports value changes.
+ * <p>
+ * Not thread safe, meant to be used from the input thread.
+ */
+public final class RemapperCore {
+    /** Deadzone used until set through {@link #setDeadzones(float[], float)} */
+    static final float DEFAULT_DEADZONE = 0.1f;
+
+    /* Compiled lookup tables, built once at construction */
+    final MappingTable keyMap, motionMap;
+    private final MappingTable reverseMotionMap;
+
+    /* Store current buttons value */
+    private final StateVector currentKeyValues = new StateVector(StateVector.KEY_SLOT_COUNT);
+    private final StateVector currentMotionValues = new StateVector(StateVector.AXIS_SLOT_COUNT);
+
+    /* Deadzones of the current device, indexed by axis slot. Null to use the fallback for all axis */
+    private float[] deadzones;
+    private float fallbackDeadzone = DEFAULT_DEADZONE;
+
+    /* Response of each stick and trigger */
+    private StickResponse leftStickResponse = StickResponse.DEFAULT, rightStickResponse = StickResponse.DEFAULT;
+    private TriggerResponse leftTriggerResponse = TriggerResponse.DEFAULT, rightTriggerResponse = TriggerResponse.DEFAULT;
+    /* Output of the stick responses */
+    private final float[] stickValues = new float[2];
+
+    /* Calibration set by the user, and the one applied, null when no axis is calibrated */
+    private AxisCalibration calibration = AxisCalibration.NONE;
+    private AxisCalibration activeCalibration;
+
+    /* Per axis slot, minimal change and quantization step of the values passed. Null until one is set */
+    private float[] changeThresholds, quantizationSteps;
+
+    /* Bindings set by the user, and the ones evaluated, including the axis mapped to keys */
+    private AxisBindings axisBindings;
+    private AxisBindings activeBindings;
+    /* Whether each axis binding presses its key, and whether the key of each key binding is held */
+    private boolean[] axisBindingStates, keyBindingStates;
+
+    /* Whether batched historical samples are processed */
+    private boolean historicalSamplesEnabled = false;
+    /* Changes waiting to be passed to a BatchGamepadHandler, null when not batching */
+    private InputBatch pendingBatch;
+    private final InputBatch batch = new InputBatch();
+    /* Time of the sample being processed, in nanoseconds, and the device it comes from */
+    private long sampleTime;
+    private int sampleDeviceId;
+
+    /* Last value passed to the handler for each code, published to the state buffer. Null if disabled */
+    private float[] stateValues;
+    private volatile GamepadStateBuffer stateBuffer;
+    private boolean isStateDirty = false;
+
+    /* Null unless enabled. Values passed to the handler or suppressed during the current event */
+    private RemapperMetrics metrics;
+    private int emittedCount, suppressedCount;
+
+    /**
+     * @param keyMap    Physical keycode to remapped code
+     * @param motionMap Physical axis to remapped code
+     */
+    public RemapperCore(Map<Integer, Integer> keyMap, Map<Integer, Integer> motionMap) {
+        this(MappingTable.from(keyMap), MappingTable.from(motionMap));
+    }
+
+    RemapperCore(MappingTable keyMap, MappingTable motionMap) {
+        this.keyMap = keyMap;
+        this.motionMap = motionMap;
+        this.reverseMotionMap = motionMap.reverse();
+        setAxisBindings(AxisBindings.EMPTY);
+    }
+
+    /**
+     * Changes the dpad value by another value with the same meaning.
+     * It is done because some axis share the same value as KEYCODE_DPAD_XX
+     *
+     * @param keycode The keycode to transform
+     */
+    static int transformKeyEventInput(int keycode) {
+        if (keycode == KEYCODE_DPAD_UP || keycode == KEYCODE_DPAD_DOWN) return AXIS_HAT_Y;
+        if (keycode == KEYCODE_DPAD_RIGHT || keycode == KEYCODE_DPAD_LEFT) return AXIS_HAT_X;
+        return keycode;
+    }
+
+    /**
+     * Set the joystick deadzones of the device the next inputs come from.
+     * The array is kept, not copied.
+     *
+     * @param deadzones Deadzone of each supported axis, indexed like {@link GamepadCodes#SUPPORTED_AXIS}. Null to use the fallback
+     * @param fallback  Deadzone of the axis without one
+     */
+    public void setDeadzones(float[] deadzones, float fallback) {
+        this.deadzones = deadzones;
+        this.fallbackDeadzone = fallback;
+    }
+
+    /**
+     * @see Remapper#setLeftStickResponse(StickResponse)
+     */
+    public void setLeftStickResponse(StickResponse response) {
+        leftStickResponse = response;
+    }
+
+    /**
+     * @see Remapper#setRightStickResponse(StickResponse)
+     */
+    public void setRightStickResponse(StickResponse response) {
+        rightStickResponse = response;
+    }
+
+    /**
+     * @see Remapper#setLeftTriggerResponse(TriggerResponse)
+     */
+    public void setLeftTriggerResponse(TriggerResponse response) {
+        leftTriggerResponse = response;
+    }
+
+    /**
+     * @see Remapper#setRightTriggerResponse(TriggerResponse)
+     */
+    public void setRightTriggerResponse(TriggerResponse response) {
+        rightTriggerResponse = response;
+    }
+
+    /**
+     * Set the calibration of the physical axis, applied before anything else.
+     * The deadzones of the calibrated axis have to be set through {@link #setDeadzones(float[], float)}.
+     */
+    public void setCalibration(AxisCalibration calibration) {
+        this.calibration = calibration;
+        activeCalibration = calibration.isEmpty() ? null : calibration;
+    }
+
+    public AxisCalibration getCalibration() {
+        return calibration;
+    }
+
+    /**
+     * @see Remapper#setAxisChangeThreshold(int, float)
+     */
+    public void setAxisChangeThreshold(int axis, float threshold) {
+        changeThresholds = setAxisFilter(changeThresholds, axis, threshold);
+    }
+
+    /**
+     * @see Remapper#setAxisQuantization(int, float)
+     */
+    public void setAxisQuantization(int axis, float step) {
+        quantizationSteps = setAxisFilter(quantizationSteps, axis, step);
+    }
+
+    /**
+     * @return The filters, with the one of the axis set. Null when no axis is filtered anymore
+     */
+    private static float[] setAxisFilter(float[] filters, int axis, float value) {
+        int slot = StateVector.axisSlot(axis);
+        if (slot == StateVector.NO_SLOT) throw new IllegalArgumentException("Unsupported axis: " + axis);
+        if (!(value >= 0 && value < 1)) throw new IllegalArgumentException("Invalid value: " + value);
+
+        if (filters == null) filters = new float[StateVector.AXIS_SLOT_COUNT];
+        filters[slot] = value;
+        for (float filter : filters) {
+            if (filter != 0) return filters;
+        }
+        return null;
+    }
+
+    /**
+     * Set the conversions between axis and keys. Axis mapped to keys by the motion map are converted as well,
+     * unless bound here.
+     */
+    public void setAxisBindings(AxisBindings bindings) {
+        axisBindings = bindings;
+        activeBindings = bindings.withMotionMap(motionMap);
+        axisBindingStates = new boolean[activeBindings.axisSources.length];
+        keyBindingStates = new boolean[activeBindings.keySources.length];
+    }
+
+    public AxisBindings getAxisBindings() {
+        return axisBindings;
+    }
+
+    /**
+     * Forget the last known value of all inputs, Eg. when the gamepad disconnects.
+     * Otherwise, an input held while disconnecting would be ignored once pressed again.
+     *
+     * @param eventTime The time of the reset in nanoseconds, for the published state
+     */
+    public void resetInputs(long eventTime) {
+        currentKeyValues.clear();
+        currentMotionValues.clear();
+        for (int i = 0; i < axisBindingStates.length; ++i) axisBindingStates[i] = false;
+        for (int i = 0; i < keyBindingStates.length; ++i) keyBindingStates[i] = false;
+        if (stateValues == null) return;
+        for (int i = 0; i < stateValues.length; ++i) {
+            stateValues[i] = 0;
+        }
+        isStateDirty = true;
+        publishState(eventTime);
+    }
+
+    /**
+     * @see Remapper#setHistoricalSamplesEnabled(boolean)
+     */
+    public void setHistoricalSamplesEnabled(boolean enabled) {
+        historicalSamplesEnabled = enabled;
+    }
+
+    /**
+     * @see Remapper#setGamepadStateEnabled(boolean)
+     */
+    public void setGamepadStateEnabled(boolean enabled) {
+        if (enabled == (stateBuffer != null)) return;
+        stateValues = enabled ? new float[StateVector.KEY_SLOT_COUNT] : null;
+        stateBuffer = enabled ? new GamepadStateBuffer() : null;
+    }
+
+    /**
+     * @see Remapper#getGamepadState()
+     */
+    public GamepadState getGamepadState() {
+        GamepadStateBuffer buffer = stateBuffer;
+        return buffer == null ? null : buffer.acquire();
+    }
+
+    /**
+     * @see Remapper#setMetrics(RemapperMetrics)
+     */
+    public void setMetrics(RemapperMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Remap a key press or release, calling the handler if the remapped value changed
+     *
+     * @param keycode   The physical keycode
+     * @param isPressed Whether the key is down
+     * @param eventTime The time of the input, in nanoseconds
+     * @param deviceId  The id of the device the input comes from
+     */
+    public void handleKeyInput(int keycode, boolean isPressed, long eventTime, int deviceId, TimedGamepadHandler handler) {
+        RemapperMetrics metrics = this.metrics;
+        if (metrics == null) {
+            remapKeyInput(keycode, isPressed, eventTime, deviceId, handler);
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        emittedCount = 0;
+        suppressedCount = 0;
+        remapKeyInput(keycode, isPressed, eventTime, deviceId, handler);
+        metrics.record(deviceId, eventTime, startTime, emittedCount, suppressedCount);
+    }
+
+    private void remapKeyInput(int keycode, boolean isPressed, long eventTime, int deviceId, TimedGamepadHandler handler) {
+        if (activeBindings.isKeyBound(keycode)) {
+            handleKeyToAxisInput(keycode, isPressed, eventTime, deviceId, handler);
+            return;
+        }
+
+        int mappedSource = keyMap.map(transformKeyEventInput(keycode));
+        float currentValue = getRemappedValue(mappedSource, keycode, isPressed);
+        if (currentKeyValues.update(StateVector.keySlot(mappedSource), currentValue)) {
+            ++emittedCount;
+            updateState(mappedSource, currentValue);
+            handler.handleGamepadInput(mappedSource, currentValue, eventTime, deviceId);
+            publishState(eventTime);
+        } else {
+            ++suppressedCount;
+        }
+    }
+
+    /**
+     * Move the axis bound to the key, to the sum of the values of the keys held
+     */
+    private void handleKeyToAxisInput(int keycode, boolean isPressed, long eventTime, int deviceId, TimedGamepadHandler handler) {
+        AxisBindings bindings = activeBindings;
+        for (int i = 0; i < bindings.keySources.length; ++i) {
+            if (bindings.keySources[i] == keycode) keyBindingStates[i] = isPressed;
+        }
+
+        for (int i = 0; i < bindings.keySources.length; ++i) {
+            if (bindings.keySources[i] != keycode) continue;
+            int axis = bindings.axisTargets[i];
+            float value = 0;
+            for (int j = 0; j < bindings.axisTargets.length; ++j) {
+                if (bindings.axisTargets[j] == axis && keyBindingStates[j]) value += bindings.axisValues[j];
+            }
+            value = Math.max(-1f, Math.min(1f, value));
+
+            if (currentKeyValues.update(StateVector.keySlot(axis), value)) {
+                ++emittedCount;
+                updateState(axis, value);
+                handler.handleGamepadInput(axis, value, eventTime, deviceId);
+            } else {
+                ++suppressedCount;
+            }
+        }
+        publishState(eventTime);
+    }
+
+    /**
+     * Remap the axis values of a motion event, calling the handler for each remapped value which changed.
+     * Historical samples are processed first when enabled, and passed at once to a {@link BatchGamepadHandler}.
+     */
+    public void handleMotionInput(MotionSamples samples, TimedGamepadHandler handler) {
+        RemapperMetrics metrics = this.metrics;
+        if (metrics == null) {
+            remapMotionInput(samples, handler);
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        emittedCount = 0;
+        suppressedCount = 0;
+        remapMotionInput(samples, handler);
+        metrics.record(sampleDeviceId, samples.getSampleTime(CURRENT_SAMPLE), startTime, emittedCount, suppressedCount);
+    }
+
+    private void remapMotionInput(MotionSamples samples, TimedGamepadHandler handler) {
+        sampleDeviceId = samples.getDeviceId();
+        if (!historicalSamplesEnabled) {
+            sampleTime = samples.getSampleTime(CURRENT_SAMPLE);
+            handleMotionSample(samples, handler, CURRENT_SAMPLE);
+            publishState(sampleTime);
+            return;
+        }
+
+        BatchGamepadHandler batchHandler = asBatchHandler(handler);
+        if (batchHandler != null) {
+            batch.clear();
+            pendingBatch = batch;
+        }
+        try {
+            for (int i = 0; i < samples.getHistorySize(); ++i) {
+                sampleTime = samples.getSampleTime(i);
+                handleMotionSample(samples, handler, i);
+            }
+            sampleTime = samples.getSampleTime(CURRENT_SAMPLE);
+            handleMotionSample(samples, handler, CURRENT_SAMPLE);
+        } finally {
+            pendingBatch = null;
+        }
+
+        if (batchHandler != null && batch.count > 0) {
+            batchHandler.handleGamepadInputBatch(batch.codes, batch.values, batch.timestamps, batch.count);
+        }
+        publishState(sampleTime);
+    }
+
+    /**
+     * Process the values at a given sample position
+     */
+    private void handleMotionSample(MotionSamples samples, TimedGamepadHandler handler, int sample) {
+        handleMotionIfDifferent(AXIS_HAT_X, getRemappedValue(AXIS_HAT_X, samples, sample), handler);
+        handleMotionIfDifferent(AXIS_HAT_Y, getRemappedValue(AXIS_HAT_Y, samples, sample), handler);
+        handleTriggerInput(samples, handler, AXIS_RTRIGGER, rightTriggerResponse, sample);
+        handleTriggerInput(samples, handler, AXIS_LTRIGGER, leftTriggerResponse, sample);
+
+        handleJoystickInput(samples, handler, AXIS_X, AXIS_Y, leftStickResponse, sample);
+        handleJoystickInput(samples, handler, AXIS_Z, AXIS_RZ, rightStickResponse, sample);
+
+        if (axisBindingStates.length > 0) handleAxisToKeyInput(samples, handler, sample);
+    }
+
+    /**
+     * Update the state of each axis binding, then press each key if any of its bindings is active
+     */
+    private void handleAxisToKeyInput(MotionSamples samples, TimedGamepadHandler handler, int sample) {
+        AxisBindings bindings = activeBindings;
+        int count = bindings.axisSources.length;
+        for (int i = 0; i < count; ++i) {
+            float value = readAxis(bindings.axisSources[i], samples, sample);
+            int direction = bindings.axisDirections[i];
+            value = direction == AxisBindings.BOTH ? Math.abs(value) : value * direction;
+            axisBindingStates[i] = value >= (axisBindingStates[i] ? bindings.resetThresholds[i] : bindings.activationThresholds[i]);
+        }
+
+        // Bindings are sorted by key
+        int i = 0;
+        while (i < count) {
+            int key = bindings.keyTargets[i];
+            boolean isPressed = false;
+            for (; i < count && bindings.keyTargets[i] == key; ++i) {
+                isPressed |= axisBindingStates[i];
+            }
+            handleIfDifferent(currentKeyValues, StateVector.keySlot(key), key, isPressed ? 1f : 0f, handler);
+        }
+    }
+
+    private void handleTriggerInput(MotionSamples samples, TimedGamepadHandler handler, int axis, TriggerResponse response, int sample) {
+        float value = getRemappedValue(axis, samples, sample);
+        if (!response.isDefault()) value = response.apply(value);
+        handleMotionIfDifferent(axis, value, handler);
+    }
+
+    /**
+     * Same as the handleMotionIfDifferent but applies the deadzone and response of the stick
+     */
+    private void handleJoystickInput(MotionSamples samples, TimedGamepadHandler handler, int horizontalAxis, int verticalAxis, StickResponse response, int sample) {
+        float x = getRemappedValue(horizontalAxis, samples, sample);
+        float y = getRemappedValue(verticalAxis, samples, sample);
+        float deviceDeadzone = getDeadzone(reverseMotionMap.map(horizontalAxis)); // FIXME should we query both axis ?
+
+        if (!response.isLinearRadial()) {
+            response.apply(x, y, deviceDeadzone, stickValues);
+            handleMotionIfDifferent(horizontalAxis, stickValues[0], handler);
+            handleMotionIfDifferent(verticalAxis, stickValues[1], handler);
+            return;
+        }
+
+        // Compare squared values, the square root is only needed past the deadzone
+        float deadzone = response.getInnerDeadzone(deviceDeadzone);
+        float squaredMagnitude = x * x + y * y;
+        if (squaredMagnitude <= deadzone * deadzone) {
+            x = 0;
+            y = 0;
+        } else {
+            // compensate the value for deadzone. Math.sqrt is an intrinsic, unlike Math.hypot
+            float magnitude = (float) Math.sqrt(squaredMagnitude);
+            float scale = (magnitude - deadzone) / (magnitude * (1 - deadzone));
+            x *= scale;
+            y *= scale;
+        }
+
+        handleMotionIfDifferent(horizontalAxis, x, handler);
+        handleMotionIfDifferent(verticalAxis, y, handler);
+    }
+
+    private float getDeadzone(int axis) {
+        int slot = StateVector.axisSlot(axis);
+        if (deadzones == null || slot == StateVector.NO_SLOT) return fallbackDeadzone;
+        return deadzones[slot];
+    }
+
+    void handleMotionIfDifferent(int mappedSource, float value, TimedGamepadHandler handler) {
+        int slot = StateVector.axisSlot(mappedSource);
+        if (slot != StateVector.NO_SLOT) {
+            if (quantizationSteps != null && quantizationSteps[slot] != 0) {
+                float step = quantizationSteps[slot];
+                value = Math.max(-1f, Math.min(1f, Math.round(value / step) * step));
+            }
+            if (changeThresholds != null && currentMotionValues.isClose(slot, value, changeThresholds[slot])) {
+                ++suppressedCount;
+                return;
+            }
+        }
+        handleIfDifferent(currentMotionValues, slot, mappedSource, value, handler);
+    }
+
+    /**
+     * Pass the value of the sample being processed, if different from the last known one
+     */
+    private void handleIfDifferent(StateVector values, int slot, int code, float value, TimedGamepadHandler handler) {
+        if (!values.update(slot, value)) {
+            ++suppressedCount;
+            return;
+        }
+        ++emittedCount;
+        updateState(code, value);
+        if (pendingBatch != null) {
+            pendingBatch.add(code, value, sampleTime);
+        } else {
+            handler.handleGamepadInput(code, value, sampleTime, sampleDeviceId);
+        }
+    }
+
+    private void updateState(int code, float value) {
+        if (stateValues == null) return;
+        int slot = StateVector.keySlot(code);
+        if (slot == StateVector.NO_SLOT) return;
+        stateValues[slot] = value;
+        isStateDirty = true;
+    }
+
+    private void publishState(long eventTime) {
+        if (stateBuffer == null || !isStateDirty) return;
+        stateBuffer.publish(stateValues, eventTime);
+        isStateDirty = false;
+    }
+
+    /**
+     * @return The handler able to receive batches, or null
+     */
+    private static BatchGamepadHandler asBatchHandler(TimedGamepadHandler handler) {
+        if (handler instanceof BatchGamepadHandler) return (BatchGamepadHandler) handler;
+        if (handler instanceof GamepadHandlerAdapter && ((GamepadHandlerAdapter) handler).handler instanceof BatchGamepadHandler) {
+            return (BatchGamepadHandler) ((GamepadHandlerAdapter) handler).handler;
+        }
+        return null;
+    }
+
+    /**
+     * Get the converted value of a key for the given mapped source
+     */
+    private static float getRemappedValue(int mappedSource, int keycode, boolean isPressed) {
+        if (!isPressed) return 0f;
+        // Special case for DPADs, there are never remapped to anything else. So we consider them properly mapped.
+        if ((mappedSource == AXIS_HAT_Y && keycode == KEYCODE_DPAD_UP)
+                || (mappedSource == AXIS_HAT_X && keycode == KEYCODE_DPAD_LEFT)
+        ) {
+            return -1f;
+        }
+        return 1f;
+    }
+
+    /**
+     * Get the converted value for the given mapped source
+     */
+    private float getRemappedValue(int mappedAxis, MotionSamples samples, int sample) {
+        int source = reverseMotionMap.get(mappedAxis);
+        if (source == MappingTable.UNMAPPED) {
+            // Nothing is mapped to the axis, so it is read as is. Unless it is mapped to a key instead.
+            int target = motionMap.get(mappedAxis);
+            if (target != MappingTable.UNMAPPED && StateVector.axisSlot(target) == StateVector.NO_SLOT) return 0;
+            source = mappedAxis;
+        }
+        return readAxis(source, samples, sample);
+    }
+
+    /**
+     * @return The calibrated value of the physical axis
+     */
+    private float readAxis(int axis, MotionSamples samples, int sample) {
+        float value = samples.getAxisValue(axis, sample);
+        if (activeCalibration == null) return value;
+        int slot = StateVector.axisSlot(axis);
+        return slot == StateVector.NO_SLOT ? value : activeCalibration.apply(slot, value);
+    }
+}
@@ -1,16 +1,22 @@
 package fr.spse.gamepad_remapper;
 
-import static fr.spse.gamepad_remapper.Remapper.SHARED_PREFERENCE_KEY;
-
 import android.content.Context;
-import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.ArrayMap;
 import android.util.Log;
+import android.util.SparseArray;
+import android.view.InputDevice;
+import android.view.InputEvent;
 import android.view.KeyEvent;
 import android.view.MotionEvent;
 
 import org.json.JSONException;
 
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * Manager class to streamline even more the integration of gamepads
  * It auto handles displaying the mapper view and handling events.
@@ -19,22 +25,162 @@ import org.json.JSONException;
  */
 public class RemapperManager {
     private final RemapperView.Builder builder;
+    private final ProfileStorage storage;
+    /* Remappers loaded so far, per device descriptor */
     private ArrayMap<String, Remapper> remappers = new ArrayMap<>();
+    /* Stored profiles which failed to load */
+    private final Set<String> invalidProfiles = new HashSet<>();
+    /* Remappers resolved per device id, dropped whenever a device changes */
+    private final SparseArray<Remapper> deviceRemappers = new SparseArray<>();
+    private int deviceGeneration;
     private RemapperView remapperView;
+    private boolean historicalSamplesEnabled = false;
+    /* Null until enabled */
+    private RemapperMetrics metrics;
+    /* Whether gamepads without profile are looked up in the bundled database */
+    private boolean controllerDatabaseEnabled = false;
+    /* Whether unknown gamepads get a default profile instead of waiting for the RemapperView */
+    private boolean defaultProfileEnabled = false;
+    private DefaultProfileListener defaultProfileListener;
+    /* Null until enabled */
+    private PlayerSlots playerSlots;
+    /* Kept here since the watcher only holds it weakly */
+    private final InputDeviceWatcher.RemovalListener removalListener = this::onInputDeviceRemoved;
 
     /**
-     * @param context A context for SharedPreferences. The Manager attempts to fetch an existing remapper.
+     * @param context A context for the profile storage. The Manager attempts to fetch an existing remapper.
+     *                Remappers are loaded when their gamepad sends its first event.
      * @param builder Builder with all the params set in. Note that the listener is going to be overridden.
      */
     public RemapperManager(Context context, RemapperView.Builder builder) {
         this.builder = builder;
-        SharedPreferences preferences = context.getSharedPreferences(SHARED_PREFERENCE_KEY, Context.MODE_PRIVATE);
-        for (String remapperKey : preferences.getAll().keySet()) {
-            try {
-                remappers.put(remapperKey, new Remapper(context, remapperKey));
-            } catch (JSONException e) {
-                Log.e(RemapperManager.class.toString(), "Could not create the following remapper:" + remapperKey);
+        InputDeviceWatcher.watch(context);
+        InputDeviceWatcher.addRemovalListener(removalListener);
+        storage = ProfileStorage.get(context);
+    }
+
+    public interface DefaultProfileListener {
+        /**
+         * Called once an unknown gamepad got a default profile.
+         * Call {@link #requestRemap(Context, String)} when convenient to let the user remap it, Eg. from a pause menu.
+         *
+         * @param descriptor The descriptor of the gamepad
+         * @param name       The name of the gamepad, for display
+         */
+        void onDefaultProfileUsed(String descriptor, String name);
+    }
+
+    /**
+     * Look up the gamepads without stored profile in the bundled database of known gamepads, disabled by default.
+     * A known gamepad is handled right away with the profile of the database, without displaying the RemapperView.
+     */
+    public void setControllerDatabaseEnabled(boolean enabled) {
+        controllerDatabaseEnabled = enabled;
+    }
+
+    /**
+     * Give unknown gamepads a profile guessed from their capabilities right away, instead of displaying
+     * the RemapperView and ignoring their inputs until it is done. The default profile is not saved.
+     *
+     * @param listener Notified of each gamepad getting a default profile, can be null
+     */
+    public void setDefaultProfileEnabled(boolean enabled, DefaultProfileListener listener) {
+        defaultProfileEnabled = enabled;
+        defaultProfileListener = listener;
+    }
+
+    /**
+     * Display the RemapperView for the gamepad. Its current remapper is kept until the remap is done.
+     *
+     * @param descriptor The descriptor of the gamepad
+     * @return Whether the view got displayed, false if one is displayed already
+     */
+    public boolean requestRemap(Context context, String descriptor) {
+        if (remapperView != null) return false;
+        buildView(context, descriptor);
+        return true;
+    }
+
+    /**
+     * Assign each gamepad to a player, so their inputs can be handled separately through
+     * {@link #handleMotionEventInput(Context, MotionEvent)} and {@link #handleKeyEventInput(Context, KeyEvent)}.
+     *
+     * @param playerCount The maximum amount of players
+     * @return The player slots, to set the handler or read the state of each player
+     */
+    public PlayerSlots enablePlayerSlots(int playerCount) {
+        playerSlots = new PlayerSlots(playerCount);
+        return playerSlots;
+    }
+
+    /**
+     * @return The player slots, or null if not enabled
+     */
+    public PlayerSlots getPlayerSlots() {
+        return playerSlots;
+    }
+
+    /**
+     * Load the remappers of the gamepads currently connected on a background thread,
+     * so their first event does not have to.
+     *
+     * @param context A context for the profile storage
+     */
+    public void prefetchConnectedGamepads(Context context) {
+        final Context appContext = context.getApplicationContext();
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        storage.execute(() -> {
+            for (int deviceId : InputDevice.getDeviceIds()) {
+                InputDevice device = InputDevice.getDevice(deviceId);
+                if (device == null || device.isVirtual()) continue;
+                if (!PlayerSlots.isGamepad(device.getSources())) continue;
+
+                final String gamepadID = device.getDescriptor();
+                if (!storage.contains(gamepadID)) continue;
+                try {
+                    final Remapper remapper = new Remapper(appContext, gamepadID);
+                    mainHandler.post(() -> {
+                        if (remappers.get(gamepadID) == null) addRemapper(gamepadID, remapper);
+                    });
+                } catch (JSONException e) {
+                    Log.e(RemapperManager.class.toString(), "Could not create the following remapper:" + gamepadID);
+                }
             }
+        });
+    }
+
+    /**
+     * Write the remappers saved in the background and not written yet, on the calling thread.
+     * Meant for when the app may be killed, like in {@code onPause()} or {@code onTrimMemory()}.
+     *
+     * @return false if some remappers could not be written, they are retried on the next flush
+     */
+    public boolean flushProfiles() {
+        return storage.flush();
+    }
+
+    /**
+     * Enable the processing of historical samples on all remappers, current and future ones.
+     *
+     * @see Remapper#setHistoricalSamplesEnabled(boolean)
+     */
+    public void setHistoricalSamplesEnabled(boolean enabled) {
+        historicalSamplesEnabled = enabled;
+        for (int i = 0; i < remappers.size(); ++i) {
+            remappers.valueAt(i).setHistoricalSamplesEnabled(enabled);
+        }
+    }
+
+    /**
+     * Record the events processed by all remappers, current and future ones
+     *
+     * @param metrics Where to record, or null to stop recording
+     * @see Remapper#setMetrics(RemapperMetrics)
+     */
+    public void setMetrics(RemapperMetrics metrics) {
+        this.metrics = metrics;
+        for (int i = 0; i < remappers.size(); ++i) {
+            remappers.valueAt(i).setMetrics(metrics);
         }
     }
 
@@ -47,8 +193,19 @@ public class RemapperManager {
      * @return Whether the input was handled or not.
      */
     public boolean handleMotionEventInput(Context context, MotionEvent event, GamepadHandler handler) {
-        if (buildView(context, getGamepadIdentifier(event))) return true;
-        return remappers.get(getGamepadIdentifier(event)).handleMotionEventInput(event, handler);
+        Remapper remapper = getRemapper(context, event);
+        if (remapper == null) return true;
+        return remapper.handleMotionEventInput(event, handler);
+    }
+
+    /**
+     * Same as {@link #handleMotionEventInput(Context, MotionEvent, GamepadHandler)},
+     * passing the time and device of each input as well.
+     */
+    public boolean handleMotionEventInput(Context context, MotionEvent event, TimedGamepadHandler handler) {
+        Remapper remapper = getRemapper(context, event);
+        if (remapper == null) return true;
+        return remapper.handleMotionEventInput(event, handler);
     }
 
     /**
@@ -60,40 +217,189 @@ public class RemapperManager {
      * @return Whether the input was handled or not.
      */
     public boolean handleKeyEventInput(Context context, KeyEvent event, GamepadHandler handler) {
-        if (buildView(context, getGamepadIdentifier(event))) return true;
-        return remappers.get(getGamepadIdentifier(event)).handleKeyEventInput(event, handler);
+        Remapper remapper = getRemapper(context, event);
+        if (remapper == null) return true;
+        return remapper.handleKeyEventInput(event, handler);
     }
 
     /**
-     * @return True if the RemapperView has just been built or displayed, waiting for a remapper
+     * Same as {@link #handleKeyEventInput(Context, KeyEvent, GamepadHandler)},
+     * passing the time and device of each input as well.
+     */
+    public boolean handleKeyEventInput(Context context, KeyEvent event, TimedGamepadHandler handler) {
+        Remapper remapper = getRemapper(context, event);
+        if (remapper == null) return true;
+        return remapper.handleKeyEventInput(event, handler);
+    }
+
+    /**
+     * If the event is a valid Gamepad event and a remapper is available, pass the remapped inputs
+     * to the player of the gamepad, see {@link #enablePlayerSlots(int)}.
+     * Will automatically ask to remap if no remapper is available
+     *
+     * @return Whether the input was handled or not. Not handled if all players are taken, or if the device is not a gamepad.
      */
-    private boolean buildView(Context context, final String gamepadID) {
-        if (remappers.get(gamepadID) != null) return false;
-        if (remapperView != null) return true;
+    public boolean handleMotionEventInput(Context context, MotionEvent event) {
+        int player = getPlayer(event);
+        if (player == PlayerSlots.NO_PLAYER) return false;
+        Remapper remapper = getRemapper(context, event);
+        if (remapper == null) return true;
+
+        boolean handled = remapper.handleMotionEventInput(event, playerSlots.getRouter(player));
+        playerSlots.endEvent(player, Remapper.getEventTimeNanos(event));
+        return handled;
+    }
+
+    /**
+     * Same as {@link #handleMotionEventInput(Context, MotionEvent)}, for key events
+     */
+    public boolean handleKeyEventInput(Context context, KeyEvent event) {
+        int player = getPlayer(event);
+        if (player == PlayerSlots.NO_PLAYER) return false;
+        Remapper remapper = getRemapper(context, event);
+        if (remapper == null) return true;
+
+        boolean handled = remapper.handleKeyEventInput(event, playerSlots.getRouter(player));
+        playerSlots.endEvent(player, Remapper.getEventTimeNanos(event));
+        return handled;
+    }
+
+    /**
+     * Get the player of the device the event comes from, assigning one if needed.
+     * Devices other than gamepads never get one.
+     */
+    private int getPlayer(InputEvent event) {
+        if (playerSlots == null) throw new IllegalStateException("Player slots are not enabled");
+        int player = playerSlots.getPlayer(event.getDeviceId());
+        if (player != PlayerSlots.NO_PLAYER) return player;
+
+        InputDevice device = event.getDevice();
+        if (device == null || !PlayerSlots.isGamepad(device.getSources())) return PlayerSlots.NO_PLAYER;
+        return playerSlots.assign(event.getDeviceId(), device.getDescriptor());
+    }
+
+    /**
+     * Release the inputs held by the device, and free its player
+     */
+    private void onInputDeviceRemoved(int deviceId) {
+        long eventTime = SystemClock.uptimeMillis() * 1_000_000L;
+        Remapper remapper = deviceRemappers.get(deviceId);
+        int player = playerSlots == null ? PlayerSlots.NO_PLAYER : playerSlots.getPlayer(deviceId);
+        if (remapper == null && player != PlayerSlots.NO_PLAYER) {
+            remapper = remappers.get(playerSlots.getDescriptor(player));
+        }
+
+        if (remapper != null) remapper.resetInputs(eventTime);
+        if (player != PlayerSlots.NO_PLAYER) playerSlots.remove(deviceId, eventTime);
+    }
+
+    /**
+     * Get the remapper of the device the event comes from.
+     * Resolved through the device descriptor once, then cached per device id.
+     *
+     * @return The remapper, or null if the RemapperView is displayed, waiting for one
+     */
+    private Remapper getRemapper(Context context, InputEvent event) {
+        int generation = InputDeviceWatcher.getGeneration();
+        if (generation != deviceGeneration) {
+            deviceRemappers.clear();
+            deviceGeneration = generation;
+        }
+
+        Remapper remapper = deviceRemappers.get(event.getDeviceId());
+        if (remapper != null) return remapper;
+
+        String gamepadID = getGamepadIdentifier(event);
+        remapper = loadRemapper(context, gamepadID);
+        if (remapper == null && controllerDatabaseEnabled) {
+            remapper = createKnownRemapper(context, event.getDevice());
+        }
+        if (remapper == null && defaultProfileEnabled) {
+            remapper = createDefaultRemapper(event.getDevice());
+        }
+        if (remapper == null) {
+            buildView(context, gamepadID);
+            return null;
+        }
+        deviceRemappers.put(event.getDeviceId(), remapper);
+        return remapper;
+    }
+
+    /**
+     * Get the remapper of the gamepad, loading it from the profile storage the first time
+     *
+     * @return The remapper, or null if none is stored
+     */
+    private Remapper loadRemapper(Context context, String gamepadID) {
+        Remapper remapper = remappers.get(gamepadID);
+        if (remapper != null || invalidProfiles.contains(gamepadID) || !storage.contains(gamepadID)) {
+            return remapper;
+        }
+
+        try {
+            remapper = new Remapper(context, gamepadID);
+            addRemapper(gamepadID, remapper);
+        } catch (JSONException e) {
+            Log.e(RemapperManager.class.toString(), "Could not create the following remapper:" + gamepadID);
+            invalidProfiles.add(gamepadID);
+        }
+        return remapper;
+    }
+
+    /**
+     * Create the remapper of a gamepad from the bundled database, kept until the gamepad is remapped
+     *
+     * @return The remapper, or null if the gamepad is unknown
+     */
+    private Remapper createKnownRemapper(Context context, InputDevice device) {
+        ProfileCodec.Profile profile = ControllerDatabase.get(context).find(device.getVendorId(), device.getProductId());
+        if (profile == null) return null;
+
+        Remapper remapper = new Remapper(profile);
+        addRemapper(device.getDescriptor(), remapper);
+        return remapper;
+    }
+
+    /**
+     * Create the default remapper of a gamepad, kept until the gamepad is remapped
+     */
+    private Remapper createDefaultRemapper(InputDevice device) {
+        Remapper remapper = DefaultProfiles.create(device);
+        addRemapper(device.getDescriptor(), remapper);
+        if (defaultProfileListener != null) {
+            defaultProfileListener.onDefaultProfileUsed(device.getDescriptor(), device.getName());
+        }
+        return remapper;
+    }
+
+    private void addRemapper(String gamepadID, Remapper remapper) {
+        remapper.setHistoricalSamplesEnabled(historicalSamplesEnabled);
+        remapper.setMetrics(metrics);
+        remappers.put(gamepadID, remapper);
+        deviceRemappers.clear();
+    }
+
+    /**
+     * Build and display the RemapperView, if not displayed already
+     */
+    private void buildView(Context context, final String gamepadID) {
+        if (remapperView != null) return;
 
         builder.setRemapListener(remapper -> {
             remapperView = null; // Destroy the reference, we don't want to always keep the view
             if (remapper == null) {
                 return;
             }
-            RemapperManager.this.remappers.put(gamepadID, remapper);
-            remapper.save(context, gamepadID); // TODO async ?
+            addRemapper(gamepadID, remapper);
+            remapper.saveAsync(context, gamepadID);
         });
         remapperView = builder.build(context);
-        return true;
-    }
-
-    /**
-     * Wrapper for the InputDevice descriptor
-     */
-    private String getGamepadIdentifier(KeyEvent event) {
-        return event.getDevice().getDescriptor();
     }
 
     /**
      * Wrapper for the InputDevice descriptor
      */
-    private String getGamepadIdentifier(MotionEvent event) {
+    private String getGamepadIdentifier(InputEvent event) {
         return event.getDevice().getDescriptor();
     }
 }
@@ -0,0 +1,186 @@
+package fr.spse.gamepad_remapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Counters of the input pipeline, per device: events processed, values passed to the handler or suppressed
+ * because unchanged, and latency histograms.
+ * <p>
+ * Opt-in, through {@link Remapper#setMetrics(RemapperMetrics)}. Disabled, the cost is a null check per event.
+ * Recorded from the input thread without locking, read from any thread through {@link #snapshot()}.
+ * Only the first {@link #MAX_DEVICES} devices are tracked.
+ */
+public final class RemapperMetrics {
+    public static final int MAX_DEVICES = 16;
+    /** Bucket i holds the durations in [2^i, 2^(i+1)) nanoseconds, the last one holds all longer durations */
+    public static final int BUCKET_COUNT = 32;
+
+    private final AtomicReferenceArray<DeviceMetrics> devices = new AtomicReferenceArray<>(MAX_DEVICES);
+    /* Only accessed by the input thread, the device of the previous event */
+    private DeviceMetrics lastDevice;
+
+    /**
+     * Record an event, from the input thread
+     *
+     * @param deviceId   The device the event comes from
+     * @param eventTime  The time of the event, in nanoseconds, on the {@link System#nanoTime()} clock
+     * @param startTime  The time the remapping started, from {@link System#nanoTime()}
+     * @param emitted    The values passed to the handler
+     * @param suppressed The values not passed to the handler, since unchanged
+     */
+    void record(int deviceId, long eventTime, long startTime, int emitted, int suppressed) {
+        DeviceMetrics device = lastDevice;
+        if (device == null || device.deviceId != deviceId) {
+            device = findDevice(deviceId);
+            if (device == null) return;
+            lastDevice = device;
+        }
+
+        long now = System.nanoTime();
+        device.increment(DeviceMetrics.EVENTS, 1);
+        device.increment(DeviceMetrics.EMITTED, emitted);
+        device.increment(DeviceMetrics.SUPPRESSED, suppressed);
+        device.processingTimes.record(now - startTime);
+        // Latency only makes sense when the handler has been called
+        if (emitted > 0) device.latencies.record(now - eventTime);
+    }
+
+    /**
+     * @return The metrics of the device, added if missing. Null when too many devices are tracked
+     */
+    private DeviceMetrics findDevice(int deviceId) {
+        for (int i = 0; i < MAX_DEVICES; ++i) {
+            DeviceMetrics device = devices.get(i);
+            if (device == null) {
+                device = new DeviceMetrics(deviceId);
+                devices.lazySet(i, device);
+                return device;
+            }
+            if (device.deviceId == deviceId) return device;
+        }
+        return null;
+    }
+
+    /**
+     * Read the metrics of all the devices seen so far. The event rate is measured since the previous snapshot.
+     *
+     * @return A snapshot per device
+     */
+    public synchronized List<Snapshot> snapshot() {
+        long now = System.nanoTime();
+        List<Snapshot> snapshots = new ArrayList<>();
+        for (int i = 0; i < MAX_DEVICES; ++i) {
+            DeviceMetrics device = devices.get(i);
+            if (device == null) break;
+            snapshots.add(device.snapshot(now));
+        }
+        return snapshots;
+    }
+
+    /**
+     * Counters of a single device, written by the input thread only
+     */
+    private static final class DeviceMetrics {
+        static final int EVENTS = 0, EMITTED = 1, SUPPRESSED = 2;
+
+        final int deviceId;
+        final AtomicLongArray counters = new AtomicLongArray(3);
+        final Histogram latencies = new Histogram(), processingTimes = new Histogram();
+
+        /* Only accessed by the reader */
+        private long lastSnapshotTime, lastSnapshotEvents;
+
+        DeviceMetrics(int deviceId) {
+            this.deviceId = deviceId;
+            lastSnapshotTime = System.nanoTime();
+        }
+
+        /**
+         * Single writer, so no need for an atomic increment
+         */
+        void increment(int counter, long amount) {
+            counters.lazySet(counter, counters.get(counter) + amount);
+        }
+
+        Snapshot snapshot(long now) {
+            long events = counters.get(EVENTS);
+            float eventsPerSecond = now == lastSnapshotTime ? 0 : (events - lastSnapshotEvents) * 1e9f / (now - lastSnapshotTime);
+            lastSnapshotTime = now;
+            lastSnapshotEvents = events;
+            return new Snapshot(deviceId, events, counters.get(EMITTED), counters.get(SUPPRESSED), eventsPerSecond,
+                    latencies.copy(), processingTimes.copy());
+        }
+    }
+
+    /**
+     * Fixed power of two buckets, written by a single thread
+     */
+    private static final class Histogram {
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+        void record(long duration) {
+            int bucket = duration <= 0 ? 0 : Math.min(BUCKET_COUNT - 1, 63 - Long.numberOfLeadingZeros(duration));
+            buckets.lazySet(bucket, buckets.get(bucket) + 1);
+        }
+
+        long[] copy() {
+            long[] copy = new long[BUCKET_COUNT];
+            for (int i = 0; i < BUCKET_COUNT; ++i) copy[i] = buckets.get(i);
+            return copy;
+        }
+    }
+
+    /**
+     * Metrics of a device at a given time. Counters are cumulated since the device was first seen.
+     */
+    public static final class Snapshot {
+        public final int deviceId;
+        /** Events processed */
+        public final long eventCount;
+        /** Values passed to the handler */
+        public final long emittedCount;
+        /** Values not passed to the handler, since unchanged */
+        public final long suppressedCount;
+        /** Events processed per second, since the previous snapshot */
+        public final float eventsPerSecond;
+        /**
+         * Time from the event to the end of the handler calls, in nanoseconds, see {@link #BUCKET_COUNT}.
+         * Event times are only given to the millisecond before Android 14, latencies are then up to 1 ms too long.
+         */
+        public final long[] latencyBuckets;
+        /** Time spent remapping each event, including the handler calls, in nanoseconds */
+        public final long[] processingTimeBuckets;
+
+        Snapshot(int deviceId, long eventCount, long emittedCount, long suppressedCount, float eventsPerSecond,
+                 long[] latencyBuckets, long[] processingTimeBuckets) {
+            this.deviceId = deviceId;
+            this.eventCount = eventCount;
+            this.emittedCount = emittedCount;
+            this.suppressedCount = suppressedCount;
+            this.eventsPerSecond = eventsPerSecond;
+            this.latencyBuckets = latencyBuckets;
+            this.processingTimeBuckets = processingTimeBuckets;
+        }
+
+        /**
+         * @param percentile Between 0 and 1, Eg. 0.99
+         * @return The upper bound of the bucket holding the percentile, in nanoseconds. 0 if nothing was recorded
+         */
+        public static long getPercentile(long[] buckets, double percentile) {
+            long total = 0;
+            for (long count : buckets) total += count;
+            if (total == 0) return 0;
+
+            long rank = Math.max(1, (long) Math.ceil(total * percentile));
+            long count = 0;
+            for (int i = 0; i < buckets.length; ++i) {
+                count += buckets[i];
+                if (count >= rank) return i == buckets.length - 1 ? Long.MAX_VALUE : 1L << (i + 1);
+            }
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -32,6 +32,7 @@ import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
+import android.os.SystemClock;
 import android.util.ArrayMap;
 import android.util.AttributeSet;
 import android.util.TypedValue;
@@ -59,6 +60,11 @@ public class RemapperView extends TextView {
     private static final float CORNER_RADIUS = 15f;
     private static final int VERTICAL_MARGIN = 40;
     private static final int HORIZONTAL_MARGIN = 40;
+    /* The last axis values are sampled at this period, and have to stay at rest for this many samples */
+    private static final long CALIBRATION_PERIOD_MS = 20;
+    private static final int CALIBRATION_SAMPLES = 25;
+    /* Past this delay, the gamepad is left uncalibrated */
+    private static final long CALIBRATION_TIMEOUT_MS = 5000;
 
     /* Map from one input to another */
     private final Map<Integer, Integer> inputMapKeys = new ArrayMap<>();
@@ -84,6 +90,26 @@ public class RemapperView extends TextView {
     private Listener listener;
     private Drawable mCurrentIconDrawable = null;
     private float dotXPos = 0; // Used for the enabled dot
+    /* Resting state of the axis, learnt once the gamepad stays at rest long enough, see sampleRestingState() */
+    private final AxisCalibration.Builder calibrationBuilder = new AxisCalibration.Builder();
+    private AxisCalibration calibration = AxisCalibration.NONE;
+    private InputDevice calibratedDevice;
+    private boolean isCalibrating = false;
+    private long calibrationDeadline;
+    /* Last value of each axis, indexed by slot. NaN for the axis the device does not report, they are not sampled */
+    private final float[] restingValues = new float[SUPPORTED_AXIS.length];
+    /* Whether the calibrated device reports each axis, indexed by slot */
+    private final boolean[] reportedAxes = new boolean[SUPPORTED_AXIS.length];
+    private final Runnable calibrationSampler = this::sampleRestingState;
+
+    /* Drawing resources, reused for every frame */
+    private final Paint backgroundPaint = new Paint();
+    private final Paint dotPaint = new Paint();
+    /* Icon of each input, loaded once in init */
+    private Drawable[] icons;
+    /* Geometry of the dots, computed when the size changes. Positions are packed as x,y pairs */
+    private float[] dotPositions = new float[0];
+    private float dotStart, dotSlice;
 
 
     /**
@@ -104,6 +130,9 @@ public class RemapperView extends TextView {
         theme.resolveAttribute(android.R.attr.colorBackground, typedValue, true);
         backgroundColor = typedValue.data;
 
+        backgroundPaint.setColor(backgroundColor);
+        dotPaint.setStrokeWidth(20);
+        dotPaint.setStrokeCap(Paint.Cap.ROUND);
 
         animator.setInterpolator(new LinearInterpolator());
         animator.setFloatValues(0, 1f);
@@ -115,9 +144,7 @@ public class RemapperView extends TextView {
             public void onAnimationUpdate(ValueAnimator animation) {
                 float value = animation.getAnimatedFraction();
 
-                float slice = (getWidth() * 0.66f) / inputList.size();
-                float offset = inputList.size() % 2 == 0 ? slice / 2f : 0;
-                dotXPos = slice * Math.max(index + value - 1, 0) + (getWidth() * 0.165f + offset);
+                dotXPos = getDotX(Math.max(index + value - 1, 0));
 
                 if (mCurrentIconDrawable != null && index > 0) {
                     if (value < 0.5) {
@@ -127,7 +154,7 @@ public class RemapperView extends TextView {
                         if (!halfPassed) {
                             halfPassed = true;
                             mCurrentIconDrawable.setAlpha(255);
-                            mCurrentIconDrawable = getResources().getDrawable(drawableList.get(index));
+                            mCurrentIconDrawable = icons[index];
                         }
                         mCurrentIconDrawable.setAlpha((int) (255 * value));
                     }
@@ -147,9 +174,7 @@ public class RemapperView extends TextView {
             public void onAnimationUpdate(ValueAnimator animation) {
                 float value = animation.getAnimatedFraction();
 
-                float slice = (getWidth() * 0.66f) / inputList.size();
-                float offset = inputList.size() % 2 == 0 ? slice / 2f : 0;
-                dotXPos = slice * Math.max(index - value + 1, 0) + (getWidth() * 0.165f + offset);
+                dotXPos = getDotX(Math.max(index - value + 1, 0));
 
                 if (mCurrentIconDrawable != null && index >= 0) {
                     if (value < 0.5) {
@@ -159,7 +184,7 @@ public class RemapperView extends TextView {
                         if (!halfPassed) {
                             halfPassed = true;
                             mCurrentIconDrawable.setAlpha(255);
-                            mCurrentIconDrawable = getResources().getDrawable(drawableList.get(index));
+                            mCurrentIconDrawable = icons[index];
                         }
                         mCurrentIconDrawable.setAlpha((int) (255 * value));
                     }
@@ -172,9 +197,12 @@ public class RemapperView extends TextView {
         post(this::init);
     }
 
-    private static int findTriggeredAxis(MotionEvent event) {
+    /**
+     * Find the axis pushed, relative to its resting state when calibrated
+     */
+    private int findTriggeredAxis(MotionEvent event) {
         for (int axis : SUPPORTED_AXIS) {
-            if (event.getAxisValue(axis) >= 0.85) {
+            if (calibration.apply(StateVector.axisSlot(axis), event.getAxisValue(axis)) >= 0.85) {
                 return axis;
             }
         }
@@ -208,8 +236,10 @@ public class RemapperView extends TextView {
     }
 
     private void init() {
+        loadIcons();
+        updateGeometry();
         // First drawable
-        mCurrentIconDrawable = getResources().getDrawable(drawableList.get(0));
+        mCurrentIconDrawable = icons[0];
 
         isListening = true;
         incrementMappedPointer();
@@ -227,6 +257,19 @@ public class RemapperView extends TextView {
             @Override
             public boolean onGenericMotion(View view, MotionEvent motionEvent) {
                 //Toast.makeText(getContext(), "remapper view listen", Toast.LENGTH_SHORT).show();
+                InputDevice device = motionEvent.getDevice();
+                if (isCalibrating && device != null && (isGamepadDevice(device) || isGamepadMotionEvent(motionEvent))) {
+                    if (calibratedDevice == null || calibratedDevice.getId() != device.getId()) {
+                        calibrationBuilder.clearSamples();
+                        calibratedDevice = device;
+                        for (int slot = 0; slot < reportedAxes.length; ++slot) {
+                            reportedAxes[slot] = device.getMotionRange(SUPPORTED_AXIS[slot], InputDevice.SOURCE_JOYSTICK) != null;
+                        }
+                    }
+                    for (int slot = 0; slot < restingValues.length; ++slot) {
+                        restingValues[slot] = reportedAxes[slot] ? motionEvent.getAxisValue(SUPPORTED_AXIS[slot]) : Float.NaN;
+                    }
+                }
                 // First, filter potentially unwanted events
                 if (!isListening) return true;
                 if (isGamepadDevice(motionEvent.getDevice()) || isGamepadMotionEvent(motionEvent)) {
@@ -251,9 +294,33 @@ public class RemapperView extends TextView {
         setFocusable(true);
         post(this::requestFocus);
         requestFocus();
-        postDelayed(() -> {
-            isListening = true;
-        }, 700);
+        postDelayed(() -> isListening = true, 700);
+
+        isCalibrating = true;
+        calibrationDeadline = SystemClock.uptimeMillis() + CALIBRATION_TIMEOUT_MS;
+        postDelayed(calibrationSampler, CALIBRATION_PERIOD_MS);
+    }
+
+    /**
+     * Sample the last values of the axis, as Android only sends events when a value changes.
+     * Samples are dropped whenever the gamepad moves, until it stays at rest long enough.
+     * Until then, and if it never does, the axis stay uncalibrated.
+     */
+    private void sampleRestingState() {
+        if (!isCalibrating) return;
+        if (calibratedDevice != null) {
+            calibrationBuilder.addSamples(restingValues);
+            if (!calibrationBuilder.isAtRest()) calibrationBuilder.clearSamples();
+        }
+
+        if (calibrationBuilder.getSampleCount() >= CALIBRATION_SAMPLES) {
+            calibration = Remapper.setCalibrationRanges(calibrationBuilder, calibratedDevice).build();
+            isCalibrating = false;
+        } else if (SystemClock.uptimeMillis() >= calibrationDeadline) {
+            isCalibrating = false;
+        } else {
+            postDelayed(calibrationSampler, CALIBRATION_PERIOD_MS);
+        }
     }
 
     /**
@@ -285,7 +352,9 @@ public class RemapperView extends TextView {
                 setText(textList.get(index));
             }
         } else {
-            listener.onRemapDone(new Remapper(inputMapKeys, inputMapMotions));
+            Remapper remapper = new Remapper(inputMapKeys, inputMapMotions);
+            remapper.setCalibration(calibration);
+            listener.onRemapDone(remapper);
             destroy();
         }
 
@@ -307,40 +376,77 @@ public class RemapperView extends TextView {
      * Make the view disappear and out of focus
      */
     private void destroy() {
+        isCalibrating = false;
+        removeCallbacks(calibrationSampler);
         setFocusable(false);
         dialog.setOnDismissListener(null);
         dialog.dismiss();
     }
 
+    /**
+     * Load the icon of each input. Inputs sharing a drawable share the instance,
+     * mutated so the alpha changes don't leak to other users of the resource.
+     */
+    private void loadIcons() {
+        icons = new Drawable[drawableList.size()];
+        ArrayMap<Integer, Drawable> loadedIcons = new ArrayMap<>();
+        for (int i = 0; i < icons.length; ++i) {
+            Drawable icon = loadedIcons.get(drawableList.get(i));
+            if (icon == null) {
+                icon = getResources().getDrawable(drawableList.get(i)).mutate();
+                loadedIcons.put(drawableList.get(i), icon);
+            }
+            icons[i] = icon;
+        }
+    }
+
+    /**
+     * Compute the position of the dots and the bounds of the icons, for the current size
+     */
+    private void updateGeometry() {
+        int count = inputList.size();
+        dotSlice = count == 0 ? 0 : (getWidth() * 0.66f) / count;
+        dotStart = getWidth() * 0.165f + (count % 2 == 0 ? dotSlice / 2f : 0);
+
+        float yPos = getHeight() - (getPaddingBottom() + VERTICAL_MARGIN) / 2f;
+        if (dotPositions.length != count * 2) dotPositions = new float[count * 2];
+        for (int i = 0; i < count; ++i) {
+            dotPositions[2 * i] = getDotX(i);
+            dotPositions[2 * i + 1] = yPos;
+        }
+
+        if (icons == null) return;
+        int centerX = getWidth() / 2;
+        int centerY = (int) (0.4 * getHeight());
+        for (Drawable icon : icons) {
+            icon.setBounds(centerX - 100, centerY - 100, centerX + 100, centerY + 100);
+        }
+    }
+
+    /**
+     * @param position The index of the input, can be in between two inputs while animating
+     * @return The horizontal position of the dot
+     */
+    private float getDotX(float position) {
+        return dotStart + dotSlice * position;
+    }
+
     @Override
     public void draw(Canvas canvas) {
-        Paint paint = new Paint();
-
         // Draw the focused window
-        paint.setAlpha(255);
-        paint.setColor(backgroundColor);
         canvas.drawRoundRect(HORIZONTAL_MARGIN, 0, getWidth() - HORIZONTAL_MARGIN, getHeight() - VERTICAL_MARGIN,
-                CORNER_RADIUS, CORNER_RADIUS, paint);
+                CORNER_RADIUS, CORNER_RADIUS, backgroundPaint);
 
         // Draw small circles displaying where the user is
-        paint.setStrokeWidth(20);
-        paint.setStrokeCap(Paint.Cap.ROUND);
-        paint.setColor(disabledColor);
-        float yPos = getHeight() - (getPaddingBottom() + VERTICAL_MARGIN) / 2f;
-        float slice = (getWidth() * 0.66f) / inputList.size();
-        float offset = inputList.size() % 2 == 0 ? slice / 2f : 0;
-
-        for (int i = 0; i < inputList.size(); ++i) {  // Disabled dots
-            float xPos = slice * i;
-            xPos += getWidth() * 0.165f + offset;
-            canvas.drawPoint(xPos, yPos, paint);
+        dotPaint.setColor(disabledColor);
+        canvas.drawPoints(dotPositions, dotPaint);
+        if (dotPositions.length > 0) {
+            dotPaint.setColor(enabledColor);
+            canvas.drawPoint(dotXPos, dotPositions[1], dotPaint);
         }
-        paint.setColor(enabledColor);
-        canvas.drawPoint(dotXPos, yPos, paint);
 
         // Draw the actual control icon
         if (mCurrentIconDrawable != null) {
-            mCurrentIconDrawable.setBounds(getWidth() / 2 - 100, (int) ((0.4 * getHeight()) - 100), getWidth() / 2 + 100, (int) ((0.4 * getHeight()) + 100));
             mCurrentIconDrawable.draw(canvas);
         }
 
@@ -350,6 +456,7 @@ public class RemapperView extends TextView {
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
+        updateGeometry();
     }
 
 
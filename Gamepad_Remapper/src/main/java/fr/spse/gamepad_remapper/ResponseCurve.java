@@ -0,0 +1,98 @@
+package fr.spse.gamepad_remapper;
+
+/**
+ * Maps an input amount from 0 to 1 to an output amount, to tune how sticks and triggers respond.
+ * Curves are sampled once into a lookup table, so evaluating any curve costs the same:
+ * one table read and a linear interpolation.
+ */
+public final class ResponseCurve {
+    /* Amount of intervals the [0, 1] range is split into */
+    private static final int TABLE_SIZE = 256;
+
+    /** Output equal to the input */
+    public static final ResponseCurve LINEAR = new ResponseCurve(null);
+
+    /* Output for each step of the input, null when linear */
+    private final float[] table;
+
+    private ResponseCurve(float[] table) {
+        this.table = table;
+    }
+
+    /**
+     * @param exponent Above 1, small movements are softened. Below 1, they are amplified.
+     * @return A curve following input ^ exponent
+     */
+    public static ResponseCurve exponential(float exponent) {
+        if (!(exponent > 0)) throw new IllegalArgumentException("Exponent must be positive: " + exponent);
+        float[] table = new float[TABLE_SIZE + 1];
+        for (int i = 0; i <= TABLE_SIZE; ++i) {
+            table[i] = (float) Math.pow((double) i / TABLE_SIZE, exponent);
+        }
+        return new ResponseCurve(table);
+    }
+
+    /**
+     * @param weight From 0, linear, to 1, fully cubic
+     * @return A curve blending the input and its cube
+     */
+    public static ResponseCurve cubic(float weight) {
+        if (!(weight >= 0 && weight <= 1)) throw new IllegalArgumentException("Weight must be between 0 and 1: " + weight);
+        float[] table = new float[TABLE_SIZE + 1];
+        for (int i = 0; i <= TABLE_SIZE; ++i) {
+            double input = (double) i / TABLE_SIZE;
+            table[i] = (float) ((1 - weight) * input + weight * input * input * input);
+        }
+        return new ResponseCurve(table);
+    }
+
+    /**
+     * Build a curve going through the points, linearly interpolated in between.
+     * The curve is flat before the first and after the last point.
+     *
+     * @param inputs  Inputs of the points, increasing, between 0 and 1
+     * @param outputs Outputs of the points
+     */
+    public static ResponseCurve fromPoints(float[] inputs, float[] outputs) {
+        if (inputs.length == 0 || inputs.length != outputs.length) throw new IllegalArgumentException("Invalid points");
+        for (int i = 0; i < inputs.length; ++i) {
+            if (!(inputs[i] >= 0 && inputs[i] <= 1) || (i > 0 && inputs[i] <= inputs[i - 1])) {
+                throw new IllegalArgumentException("Inputs must be increasing, between 0 and 1");
+            }
+        }
+
+        float[] table = new float[TABLE_SIZE + 1];
+        int point = 0;
+        for (int i = 0; i <= TABLE_SIZE; ++i) {
+            float input = (float) i / TABLE_SIZE;
+            while (point < inputs.length && inputs[point] < input) ++point;
+            if (point == 0) {
+                table[i] = outputs[0];
+            } else if (point == inputs.length) {
+                table[i] = outputs[inputs.length - 1];
+            } else {
+                float fraction = (input - inputs[point - 1]) / (inputs[point] - inputs[point - 1]);
+                table[i] = outputs[point - 1] + (outputs[point] - outputs[point - 1]) * fraction;
+            }
+        }
+        return new ResponseCurve(table);
+    }
+
+    boolean isLinear() {
+        return table == null;
+    }
+
+    /**
+     * @param input The input amount, clamped between 0 and 1
+     * @return The output amount
+     */
+    float apply(float input) {
+        if (!(input > 0)) input = 0; // Also catches NaN
+        else if (input > 1) input = 1;
+        if (table == null) return input;
+
+        float position = input * TABLE_SIZE;
+        int index = Math.min((int) position, TABLE_SIZE - 1);
+        return table[index] + (table[index + 1] - table[index]) * (position - index);
+    }
+}
@@ -1,22 +1,8 @@
 package fr.spse.gamepad_remapper;
 
-import static android.view.MotionEvent.AXIS_BRAKE;
-import static android.view.MotionEvent.AXIS_GAS;
-import static android.view.MotionEvent.AXIS_HAT_X;
-import static android.view.MotionEvent.AXIS_HAT_Y;
-import static android.view.MotionEvent.AXIS_LTRIGGER;
-import static android.view.MotionEvent.AXIS_RTRIGGER;
-import static android.view.MotionEvent.AXIS_RX;
-import static android.view.MotionEvent.AXIS_RY;
-import static android.view.MotionEvent.AXIS_RZ;
-import static android.view.MotionEvent.AXIS_THROTTLE;
-import static android.view.MotionEvent.AXIS_X;
-import static android.view.MotionEvent.AXIS_Y;
-import static android.view.MotionEvent.AXIS_Z;
-
 public class Settings {
 
-    public final static int[] SUPPORTED_AXIS = new int[]{AXIS_HAT_X, AXIS_HAT_Y, AXIS_RX, AXIS_RY, AXIS_X, AXIS_Y, AXIS_Z, AXIS_RZ, AXIS_GAS, AXIS_BRAKE, AXIS_THROTTLE, AXIS_RTRIGGER, AXIS_LTRIGGER};
+    public final static int[] SUPPORTED_AXIS = GamepadCodes.SUPPORTED_AXIS;
 
     /**
      * Deadzone at 100% if the device does not declare his properly
@@ -38,5 +24,6 @@ public class Settings {
      */
     public static void setDeadzoneScale(float scale) {
         DEADZONE_SCALE = scale;
+        DeadzoneCache.invalidate();
     }
 }
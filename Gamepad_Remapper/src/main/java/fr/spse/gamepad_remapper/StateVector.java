@@ -0,0 +1,101 @@
+package fr.spse.gamepad_remapper;
+
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_GENERIC_16;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_16;
+import static fr.spse.gamepad_remapper.GamepadCodes.SUPPORTED_AXIS;
+
+/**
+ * Last known value of a set of inputs, stored as primitives.
+ * Each input is addressed by a compact slot id, see {@link #axisSlot(int)} and {@link #keySlot(int)}.
+ */
+final class StateVector {
+    /** Slot of inputs which aren't tracked */
+    static final int NO_SLOT = -1;
+
+    /** Every keycode up to the last generic gamepad button gets its own slot */
+    static final int KEY_SLOT_COUNT = KEYCODE_BUTTON_16 + 1;
+    /** Only supported axis get a slot */
+    static final int AXIS_SLOT_COUNT = SUPPORTED_AXIS.length;
+
+    /* Axis id to slot id */
+    private static final int[] AXIS_SLOTS = new int[AXIS_GENERIC_16 + 1];
+
+    static {
+        for (int i = 0; i < AXIS_SLOTS.length; ++i) {
+            AXIS_SLOTS[i] = NO_SLOT;
+        }
+        for (int i = 0; i < SUPPORTED_AXIS.length; ++i) {
+            AXIS_SLOTS[SUPPORTED_AXIS[i]] = i;
+        }
+    }
+
+    private final float[] values;
+    /* Bitset of slots which received at least one value */
+    private final long[] seen;
+
+    StateVector(int size) {
+        values = new float[size];
+        seen = new long[(size + 63) >>> 6];
+    }
+
+    /**
+     * @return The slot of the axis, or {@link #NO_SLOT} if not supported
+     */
+    static int axisSlot(int axis) {
+        if (axis < 0 || axis >= AXIS_SLOTS.length) return NO_SLOT;
+        return AXIS_SLOTS[axis];
+    }
+
+    /**
+     * @return The slot of the keycode, or {@link #NO_SLOT} if out of the tracked range
+     */
+    static int keySlot(int keycode) {
+        if (keycode < 0 || keycode >= KEY_SLOT_COUNT) return NO_SLOT;
+        return keycode;
+    }
+
+    /**
+     * Store the value if it is different from the last known one.
+     * Untracked slots are always considered as changed.
+     *
+     * @return Whether the value changed
+     */
+    boolean update(int slot, float value) {
+        if (slot == NO_SLOT) return true;
+        long mask = 1L << slot;
+        int word = slot >>> 6;
+        if ((seen[word] & mask) != 0 && values[slot] == value) return false;
+
+        values[slot] = value;
+        seen[word] |= mask;
+        return true;
+    }
+
+    /**
+     * @return Whether a value was received and is closer than the threshold to the value.
+     * Values at rest or at the extremes are never considered close, so they are always reached.
+     */
+    boolean isClose(int slot, float value, float threshold) {
+        if ((seen[slot >>> 6] & (1L << slot)) == 0) return false;
+        if (value == 0 || value == 1 || value == -1) return false;
+        return Math.abs(values[slot] - value) < threshold;
+    }
+
+    /**
+     * Forget all values, as if none was received
+     */
+    void clear() {
+        for (int i = 0; i < seen.length; ++i) {
+            seen[i] = 0;
+        }
+    }
+
+    /**
+     * @return The last known value, or the fallback if none was received
+     */
+    float get(int slot, float fallback) {
+        if (slot == NO_SLOT) return fallback;
+        if ((seen[slot >>> 6] & (1L << slot)) == 0) return fallback;
+        return values[slot];
+    }
+}
@@ -0,0 +1,164 @@
+package fr.spse.gamepad_remapper;
+
+/**
+ * How a joystick responds: the shape and size of its deadzones, and the curve applied past them.
+ * Build it through {@link Builder}.
+ */
+public final class StickResponse {
+    /** Radial deadzone of the size declared by the device, rescaled linearly. The historical behaviour. */
+    public static final StickResponse DEFAULT = new Builder().build();
+
+    /* Inner deadzone resolved from the device */
+    private static final float DEVICE_DEADZONE = -1;
+
+    public enum DeadzoneType {
+        /** Ignores the stick until it leaves a circle, keeps the direction accurate */
+        RADIAL,
+        /** Ignores each axis separately, snaps to the axis when close to them */
+        AXIAL,
+        /** Axial deadzone widening as the other axis gets pushed, none at the center. Snaps to an axis pushed far along */
+        BOWTIE,
+        /** Radial deadzone, followed by a bowtie one, to snap to the axis without losing precision at the center */
+        HYBRID
+    }
+
+    private final DeadzoneType type;
+    private final float innerDeadzone;
+    private final float outerDeadzone;
+    private final ResponseCurve curve;
+
+    private StickResponse(Builder builder) {
+        this.type = builder.type;
+        this.innerDeadzone = builder.innerDeadzone;
+        this.outerDeadzone = builder.outerDeadzone;
+        this.curve = builder.curve;
+    }
+
+    /**
+     * @return Whether the response is a radial deadzone with a linear rescale, as computed by the core itself
+     */
+    boolean isLinearRadial() {
+        return type == DeadzoneType.RADIAL && outerDeadzone == 1 && curve.isLinear();
+    }
+
+    /**
+     * @return The inner deadzone, or the one of the device if not set
+     */
+    float getInnerDeadzone(float deviceDeadzone) {
+        return innerDeadzone == DEVICE_DEADZONE ? deviceDeadzone : innerDeadzone;
+    }
+
+    /**
+     * Apply the response to the stick position
+     *
+     * @param out Receives the horizontal then vertical values
+     */
+    void apply(float x, float y, float deviceDeadzone, float[] out) {
+        float inner = getInnerDeadzone(deviceDeadzone);
+        switch (type) {
+            case RADIAL:
+                applyRadial(x, y, inner, curve, out);
+                break;
+            case AXIAL:
+                out[0] = applyAxial(x, inner, curve);
+                out[1] = applyAxial(y, inner, curve);
+                break;
+            case BOWTIE:
+                out[0] = applyAxial(x, inner * Math.abs(y), curve);
+                out[1] = applyAxial(y, inner * Math.abs(x), curve);
+                break;
+            case HYBRID:
+                applyHybrid(x, y, inner, out);
+                break;
+        }
+    }
+
+    private void applyRadial(float x, float y, float inner, ResponseCurve curve, float[] out) {
+        float squaredMagnitude = x * x + y * y;
+        if (squaredMagnitude <= inner * inner) {
+            out[0] = 0;
+            out[1] = 0;
+            return;
+        }
+        float magnitude = (float) Math.sqrt(squaredMagnitude);
+        float scale = curve.apply((magnitude - inner) / (outerDeadzone - inner)) / magnitude;
+        out[0] = x * scale;
+        out[1] = y * scale;
+    }
+
+    /**
+     * Remove the radial deadzone without rescaling, so the travel up to the outer deadzone is only rescaled once
+     */
+    private void applyHybrid(float x, float y, float inner, float[] out) {
+        float magnitude = (float) Math.sqrt(x * x + y * y);
+        if (magnitude <= inner) {
+            out[0] = 0;
+            out[1] = 0;
+            return;
+        }
+        // Travel past the radial deadzone, relative to the one up to the outer deadzone
+        float scale = (magnitude - inner) / magnitude / (outerDeadzone - inner);
+        float travelX = Math.min(Math.abs(x * scale), 1);
+        float travelY = Math.min(Math.abs(y * scale), 1);
+        out[0] = applyBowtie(x, travelX, inner * travelY, curve);
+        out[1] = applyBowtie(y, travelY, inner * travelX, curve);
+    }
+
+    private static float applyBowtie(float value, float travel, float deadzone, ResponseCurve curve) {
+        float amount = curve.apply((travel - deadzone) / (1 - deadzone));
+        return value < 0 ? -amount : amount;
+    }
+
+    private float applyAxial(float value, float inner, ResponseCurve curve) {
+        float amount = curve.apply((Math.abs(value) - inner) / (outerDeadzone - inner));
+        return value < 0 ? -amount : amount;
+    }
+
+    public static final class Builder {
+        private DeadzoneType type = DeadzoneType.RADIAL;
+        private float innerDeadzone = DEVICE_DEADZONE;
+        private float outerDeadzone = 1;
+        private ResponseCurve curve = ResponseCurve.LINEAR;
+
+        /**
+         * @param type The shape of the deadzone, {@link DeadzoneType#RADIAL} by default
+         */
+        public Builder setDeadzoneType(DeadzoneType type) {
+            this.type = type;
+            return this;
+        }
+
+        /**
+         * @param deadzone The stick travel ignored, from 0 to 1. By default, the one declared by the device.
+         */
+        public Builder setInnerDeadzone(float deadzone) {
+            if (!(deadzone >= 0 && deadzone < 1)) throw new IllegalArgumentException("Invalid deadzone: " + deadzone);
+            this.innerDeadzone = deadzone;
+            return this;
+        }
+
+        /**
+         * @param deadzone The stick travel at which the stick counts as fully pushed, 1 by default
+         */
+        public Builder setOuterDeadzone(float deadzone) {
+            if (!(deadzone > 0 && deadzone <= 1)) throw new IllegalArgumentException("Invalid deadzone: " + deadzone);
+            this.outerDeadzone = deadzone;
+            return this;
+        }
+
+        /**
+         * @param curve Curve applied to the travel between both deadzones, linear by default
+         */
+        public Builder setCurve(ResponseCurve curve) {
+            this.curve = curve;
+            return this;
+        }
+
+        public StickResponse build() {
+            if (innerDeadzone != DEVICE_DEADZONE && innerDeadzone >= outerDeadzone) {
+                throw new IllegalArgumentException("The inner deadzone must be smaller than the outer one");
+            }
+            return new StickResponse(this);
+        }
+    }
+}
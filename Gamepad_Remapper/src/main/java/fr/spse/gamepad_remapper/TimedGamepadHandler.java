@@ -0,0 +1,21 @@
+package fr.spse.gamepad_remapper;
+
+
+/**
+ * Same as the {@link GamepadHandler}, with the time and device the input originates from.
+ * Useful to measure or compensate input latency.
+ */
+public interface TimedGamepadHandler {
+
+    /**
+     * Function handling all gamepad actions.
+     *
+     * @param code      Either a keycode (Eg. KEYBODE_BUTTON_A), either an axis (Eg. AXIS_HAT_X)
+     * @param value     For keycodes, 0 for released state, 1 for pressed state.
+     *                  For Axis, the value of the axis. Varies between 0/1 or -1/1 depending on the axis.
+     * @param eventTime The time of the source event in nanoseconds, in the {@link android.os.SystemClock#uptimeMillis()} time base.
+     *                  Android only reports it with a millisecond precision before API 34.
+     * @param deviceId  The id of the {@link android.view.InputDevice} the source event comes from.
+     */
+    void handleGamepadInput(int code, float value, long eventTime, int deviceId);
+}
@@ -0,0 +1,135 @@
+package fr.spse.gamepad_remapper;
+
+/**
+ * Hashed timer wheel over a fixed set of timers, identified by their index.
+ * Each timer is linked into the bucket of its deadline tick; advancing the wheel only scans the buckets
+ * of the elapsed ticks. Nothing is allocated after construction.
+ * <p>
+ * Not thread safe.
+ */
+final class TimerWheel {
+    private static final int NONE = -1;
+
+    interface Callback {
+        /**
+         * Called once the deadline is reached. The timer may be scheduled again from there.
+         */
+        void onTimer(int timer, long deadline);
+    }
+
+    private final long tickDuration;
+    private final int mask;
+    /* First timer of each bucket */
+    private final int[] heads;
+    /* Doubly linked lists of timers, per bucket */
+    private final int[] next, previous;
+    private final long[] deadlines;
+    private final int[] buckets;
+    private final boolean[] isScheduled;
+    /* Timers expired by the current advance, waiting for their callback */
+    private final int[] expired;
+    private final boolean[] isExpired;
+    /* First tick which may still hold timers to fire */
+    private long currentTick = 0;
+
+    /**
+     * @param capacity     The amount of timers
+     * @param bucketCount  A power of two, the amount of ticks covered by a rotation
+     * @param tickDuration In nanoseconds
+     */
+    TimerWheel(int capacity, int bucketCount, long tickDuration) {
+        if (Integer.bitCount(bucketCount) != 1) throw new IllegalArgumentException("Bucket count must be a power of two");
+        this.tickDuration = tickDuration;
+        mask = bucketCount - 1;
+        heads = new int[bucketCount];
+        for (int i = 0; i < bucketCount; ++i) heads[i] = NONE;
+        next = new int[capacity];
+        previous = new int[capacity];
+        deadlines = new long[capacity];
+        buckets = new int[capacity];
+        isScheduled = new boolean[capacity];
+        expired = new int[capacity];
+        isExpired = new boolean[capacity];
+    }
+
+    /**
+     * Schedule the timer, replacing its previous deadline
+     *
+     * @param deadline In nanoseconds. Deadlines in the past fire on the next advance
+     */
+    void schedule(int timer, long deadline) {
+        cancel(timer);
+        long tick = Math.max(deadline / tickDuration, currentTick);
+        int bucket = (int) (tick & mask);
+
+        deadlines[timer] = deadline;
+        buckets[timer] = bucket;
+        previous[timer] = NONE;
+        next[timer] = heads[bucket];
+        if (heads[bucket] != NONE) previous[heads[bucket]] = timer;
+        heads[bucket] = timer;
+        isScheduled[timer] = true;
+    }
+
+    void cancel(int timer) {
+        isExpired[timer] = false;
+        if (!isScheduled[timer]) return;
+        if (previous[timer] != NONE) {
+            next[previous[timer]] = next[timer];
+        } else {
+            heads[buckets[timer]] = next[timer];
+        }
+        if (next[timer] != NONE) previous[next[timer]] = previous[timer];
+        isScheduled[timer] = false;
+    }
+
+    boolean isScheduled(int timer) {
+        return isScheduled[timer];
+    }
+
+    /**
+     * Fire all the timers whose deadline is reached, tick after tick
+     *
+     * @param now In nanoseconds
+     */
+    void advance(long now, Callback callback) {
+        long targetTick = now / tickDuration;
+        if (targetTick < currentTick) return;
+        // Past a full rotation, every bucket is scanned once
+        currentTick = Math.max(currentTick, targetTick - mask);
+
+        // The last tick is kept as current, it may hold deadlines later than now
+        for (; ; ++currentTick) {
+            while (fireExpired((int) (currentTick & mask), now, callback)) {
+                // Timers scheduled again in the past land in the current bucket, so it is scanned until nothing fires
+            }
+            if (currentTick == targetTick) break;
+        }
+    }
+
+    /**
+     * @return Whether any timer of the bucket fired
+     */
+    private boolean fireExpired(int bucket, long now, Callback callback) {
+        int count = 0;
+        int timer = heads[bucket];
+        while (timer != NONE) {
+            int nextTimer = next[timer];
+            if (deadlines[timer] <= now) {
+                cancel(timer);
+                isExpired[timer] = true;
+                expired[count++] = timer;
+            }
+            timer = nextTimer;
+        }
+
+        // Callbacks run once the expired timers are unlinked, so they can schedule or cancel any timer
+        for (int i = 0; i < count; ++i) {
+            timer = expired[i];
+            if (!isExpired[timer]) continue;
+            isExpired[timer] = false;
+            callback.onTimer(timer, deadlines[timer]);
+        }
+        return count > 0;
+    }
+}
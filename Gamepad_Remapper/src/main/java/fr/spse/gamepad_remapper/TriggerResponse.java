@@ -0,0 +1,40 @@
+package fr.spse.gamepad_remapper;
+
+/**
+ * How a trigger responds: the travel below the inner deadzone is ignored,
+ * the travel above the outer deadzone counts as fully pressed, and the curve is applied in between.
+ */
+public final class TriggerResponse {
+    /** Raw trigger values, untouched */
+    public static final TriggerResponse DEFAULT = new TriggerResponse(0, 1, ResponseCurve.LINEAR);
+
+    private final float innerDeadzone;
+    private final float inverseRange;
+    private final ResponseCurve curve;
+
+    /**
+     * @param innerDeadzone Travel ignored, from 0 to 1
+     * @param outerDeadzone Travel at which the trigger counts as fully pressed, above the inner deadzone
+     * @param curve         Curve applied to the travel in between
+     */
+    public TriggerResponse(float innerDeadzone, float outerDeadzone, ResponseCurve curve) {
+        if (!(innerDeadzone >= 0 && innerDeadzone < outerDeadzone && outerDeadzone <= 1)) {
+            throw new IllegalArgumentException("Invalid deadzones: " + innerDeadzone + ", " + outerDeadzone);
+        }
+        this.innerDeadzone = innerDeadzone;
+        this.inverseRange = 1 / (outerDeadzone - innerDeadzone);
+        this.curve = curve;
+    }
+
+    boolean isDefault() {
+        return innerDeadzone == 0 && inverseRange == 1 && curve.isLinear();
+    }
+
+    /**
+     * @return The value with the response applied, keeping its sign
+     */
+    float apply(float value) {
+        float amount = curve.apply((Math.abs(value) - innerDeadzone) * inverseRange);
+        return value < 0 ? -amount : amount;
+    }
+}
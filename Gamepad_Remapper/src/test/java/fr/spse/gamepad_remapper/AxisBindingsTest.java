@@ -0,0 +1,135 @@
+package fr.spse.gamepad_remapper;
+
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_LTRIGGER;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_RTRIGGER;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_X;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_Y;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_A;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_L1;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_R1;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_DPAD_UP;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class AxisBindingsTest {
+    private final List<Integer> codes = new ArrayList<>();
+    private final List<Float> values = new ArrayList<>();
+    private final TimedGamepadHandler handler = (code, value, eventTime, deviceId) -> {
+        codes.add(code);
+        values.add(value);
+    };
+
+    @Test
+    public void axisToKey_appliesHysteresis() {
+        RemapperCore core = new RemapperCore(new HashMap<>(), new HashMap<>());
+        core.setAxisBindings(new AxisBindings.Builder()
+                .addAxisToKey(AXIS_Y, AxisBindings.NEGATIVE, KEYCODE_DPAD_UP, 0.5f, 0.3f)
+                .build());
+        TestMotionSamples samples = new TestMotionSamples(0);
+
+        float[] positions = {-0.4f, -0.6f, -0.4f, -0.35f, -0.2f, 0.9f};
+        float[] expected = {0, 1, 1, 1, 0, 0};
+        for (int i = 0; i < positions.length; ++i) {
+            core.handleMotionInput(samples.set(AXIS_Y, positions[i]), handler);
+            assertEquals("Position " + positions[i], expected[i], lastValue(KEYCODE_DPAD_UP), 0f);
+        }
+        // Only the changes got passed
+        assertEquals(3, count(KEYCODE_DPAD_UP));
+    }
+
+    @Test
+    public void axisToKey_keyHeldByAnyAxis() {
+        RemapperCore core = new RemapperCore(new HashMap<>(), new HashMap<>());
+        core.setAxisBindings(new AxisBindings.Builder()
+                .addAxisToKey(AXIS_LTRIGGER, AxisBindings.POSITIVE, KEYCODE_BUTTON_A)
+                .addAxisToKey(AXIS_RTRIGGER, AxisBindings.POSITIVE, KEYCODE_BUTTON_A)
+                .build());
+        TestMotionSamples samples = new TestMotionSamples(0);
+
+        core.handleMotionInput(samples.set(AXIS_LTRIGGER, 1f), handler);
+        core.handleMotionInput(samples.set(AXIS_RTRIGGER, 1f), handler);
+        core.handleMotionInput(samples.set(AXIS_LTRIGGER, 0f), handler);
+        assertEquals(1f, lastValue(KEYCODE_BUTTON_A), 0f);
+
+        core.handleMotionInput(samples.set(AXIS_RTRIGGER, 0f), handler);
+        assertEquals(0f, lastValue(KEYCODE_BUTTON_A), 0f);
+        // The trigger axis is still passed: resting, pressed, then released
+        assertEquals(3, count(AXIS_RTRIGGER));
+    }
+
+    @Test
+    public void motionMap_axisMappedToKey() {
+        Map<Integer, Integer> motionMap = new HashMap<>();
+        motionMap.put(AXIS_LTRIGGER, KEYCODE_BUTTON_L1);
+        RemapperCore core = new RemapperCore(new HashMap<>(), motionMap);
+        TestMotionSamples samples = new TestMotionSamples(0);
+
+        core.handleMotionInput(samples.set(AXIS_LTRIGGER, 0.7f), handler);
+        assertEquals(1f, lastValue(KEYCODE_BUTTON_L1), 0f);
+        core.handleMotionInput(samples.set(AXIS_LTRIGGER, 0.5f), handler);
+        assertEquals(1f, lastValue(KEYCODE_BUTTON_L1), 0f);
+        core.handleMotionInput(samples.set(AXIS_LTRIGGER, 0.1f), handler);
+        assertEquals(0f, lastValue(KEYCODE_BUTTON_L1), 0f);
+
+        // The axis drives the key only
+        assertFalse(codes.contains(AXIS_LTRIGGER) && lastValue(AXIS_LTRIGGER) != 0);
+    }
+
+    @Test
+    public void keyToAxis_sumsHeldKeys() {
+        RemapperCore core = new RemapperCore(new HashMap<>(), new HashMap<>());
+        core.setAxisBindings(new AxisBindings.Builder()
+                .addKeyToAxis(KEYCODE_BUTTON_L1, AXIS_X, -1f)
+                .addKeyToAxis(KEYCODE_BUTTON_R1, AXIS_X, 1f)
+                .build());
+
+        core.handleKeyInput(KEYCODE_BUTTON_L1, true, 0, 1, handler);
+        assertEquals(-1f, lastValue(AXIS_X), 0f);
+        core.handleKeyInput(KEYCODE_BUTTON_R1, true, 1, 1, handler);
+        assertEquals(0f, lastValue(AXIS_X), 0f);
+        core.handleKeyInput(KEYCODE_BUTTON_L1, false, 2, 1, handler);
+        assertEquals(1f, lastValue(AXIS_X), 0f);
+    }
+
+    @Test
+    public void bindings_areSavedInProfile() {
+        AxisBindings bindings = new AxisBindings.Builder()
+                .addAxisToKey(AXIS_Y, AxisBindings.NEGATIVE, KEYCODE_DPAD_UP, 0.5f, 0.3f)
+                .addKeyToAxis(KEYCODE_BUTTON_L1, AXIS_LTRIGGER, 0.5f)
+                .build();
+        byte[] data = ProfileCodec.encode(MappingTable.from(new HashMap<>()), MappingTable.from(new HashMap<>()), bindings);
+
+        AxisBindings decoded = ProfileCodec.decode(data).axisBindings;
+        assertEquals(AXIS_Y, decoded.axisSources[0]);
+        assertEquals(AxisBindings.NEGATIVE, decoded.axisDirections[0]);
+        assertEquals(0.3f, decoded.resetThresholds[0], 0f);
+        assertEquals(AXIS_LTRIGGER, decoded.axisTargets[0]);
+        assertEquals(0.5f, decoded.axisValues[0], 0f);
+
+        assertTrue(ProfileCodec.decode(ProfileCodec.encode(
+                MappingTable.from(new HashMap<>()), MappingTable.from(new HashMap<>()))).axisBindings.isEmpty());
+    }
+
+    private float lastValue(int code) {
+        for (int i = codes.size() - 1; i >= 0; --i) {
+            if (codes.get(i) == code) return values.get(i);
+        }
+        throw new AssertionError("No value for " + code);
+    }
+
+    private int count(int code) {
+        int count = 0;
+        for (int c : codes) {
+            if (c == code) ++count;
+        }
+        return count;
+    }
+}
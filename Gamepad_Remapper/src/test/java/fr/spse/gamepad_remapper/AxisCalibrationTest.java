@@ -0,0 +1,127 @@
+package fr.spse.gamepad_remapper;
+
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_LTRIGGER;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_X;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_Y;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+public class AxisCalibrationTest {
+    private final List<Integer> codes = new ArrayList<>();
+    private final List<Float> values = new ArrayList<>();
+    private final TimedGamepadHandler handler = (code, value, eventTime, deviceId) -> {
+        codes.add(code);
+        values.add(value);
+    };
+
+    @Test
+    public void build_learnsRestingState() {
+        AxisCalibration.Builder builder = new AxisCalibration.Builder();
+        for (int i = 0; i < 100; ++i) {
+            builder.addSample(AXIS_X, i % 2 == 0 ? 0.09f : 0.11f);
+            builder.addSample(AXIS_LTRIGGER, -1f);
+        }
+        builder.addSample(AXIS_Y, 0.5f);
+        AxisCalibration calibration = builder.build();
+
+        assertEquals(0.1f, calibration.getCenter(AXIS_X), 1e-6f);
+        // 4 standard deviations of 0.01, the default range needs no scaling
+        assertEquals(4 * 0.01f, calibration.getDeadzone(AXIS_X), 1e-3f);
+        assertEquals(AxisCalibration.MIN_DEADZONE, calibration.getDeadzone(AXIS_LTRIGGER), 0f);
+        // Not enough samples
+        assertFalse(calibration.isCalibrated(AXIS_Y));
+        assertTrue(calibration.isCalibrated(AXIS_X));
+    }
+
+    @Test
+    public void builder_rejectsMovingAxis() {
+        AxisCalibration.Builder builder = new AxisCalibration.Builder();
+        float[] values = new float[StateVector.AXIS_SLOT_COUNT];
+        int slotX = StateVector.axisSlot(AXIS_X);
+        for (int i = 0; i < 20; ++i) {
+            // Pushed then released, as when the dialog opens while playing
+            values[slotX] = 0.8f - i * 0.04f;
+            builder.addSamples(values);
+        }
+        assertFalse(builder.isAtRest());
+        assertFalse(builder.build().isCalibrated(AXIS_X));
+
+        builder.clearSamples();
+        assertEquals(0, builder.getSampleCount());
+        values[slotX] = 0.1f;
+        for (int i = 0; i < AxisCalibration.MIN_SAMPLES; ++i) builder.addSamples(values);
+        assertTrue(builder.isAtRest());
+        assertEquals(AxisCalibration.MIN_SAMPLES, builder.getSampleCount());
+        assertEquals(0.1f, builder.build().getCenter(AXIS_X), 1e-6f);
+    }
+
+    @Test
+    public void mergeDeadzones_appliesScaleAndFloor() {
+        AxisCalibration.Builder builder = new AxisCalibration.Builder();
+        for (int i = 0; i < 100; ++i) builder.addSample(AXIS_X, i % 2 == 0 ? 0.09f : 0.11f);
+        AxisCalibration calibration = builder.build();
+
+        float[] deviceDeadzones = new float[StateVector.AXIS_SLOT_COUNT];
+        Arrays.fill(deviceDeadzones, 0.3f);
+        float[] merged = calibration.mergeDeadzones(deviceDeadzones, 2f, 0.05f);
+        assertEquals(2 * calibration.getDeadzone(AXIS_X), merged[StateVector.axisSlot(AXIS_X)], 1e-6f);
+        assertEquals(0.3f, merged[StateVector.axisSlot(AXIS_Y)], 0f);
+
+        // A quiet axis never gets below the smallest deadzone
+        merged = calibration.mergeDeadzones(deviceDeadzones, 2f, 0.2f);
+        assertEquals(0.2f, merged[StateVector.axisSlot(AXIS_X)], 0f);
+    }
+
+    @Test
+    public void apply_centersAxisAndStretchesTriggers() {
+        AxisCalibration.Builder builder = new AxisCalibration.Builder();
+        for (int i = 0; i < AxisCalibration.MIN_SAMPLES; ++i) {
+            builder.addSample(AXIS_X, 0.1f);
+            builder.addSample(AXIS_LTRIGGER, -1f);
+        }
+        RemapperCore core = new RemapperCore(new HashMap<>(), new HashMap<>());
+        core.setCalibration(builder.build());
+        core.setDeadzones(null, 0f);
+        TestMotionSamples samples = new TestMotionSamples(0);
+
+        core.handleMotionInput(samples.set(AXIS_X, 0.1f).set(AXIS_LTRIGGER, -1f), handler);
+        assertEquals(0f, lastValue(AXIS_X), 1e-6f);
+        assertEquals(0f, lastValue(AXIS_LTRIGGER), 0f);
+
+        core.handleMotionInput(samples.set(AXIS_X, 1f).set(AXIS_LTRIGGER, 0f), handler);
+        assertEquals(0.9f, lastValue(AXIS_X), 1e-6f);
+        assertEquals(0.5f, lastValue(AXIS_LTRIGGER), 1e-6f);
+    }
+
+    @Test
+    public void calibration_isSavedInProfile() {
+        AxisCalibration.Builder builder = new AxisCalibration.Builder().setRange(AXIS_X, -2f, 2f);
+        for (int i = 0; i < AxisCalibration.MIN_SAMPLES; ++i) {
+            builder.addSample(AXIS_X, 0.1f * (i % 2));
+        }
+        AxisCalibration calibration = builder.build();
+        byte[] data = ProfileCodec.encode(MappingTable.from(new HashMap<>()), MappingTable.from(new HashMap<>()),
+                AxisBindings.EMPTY, calibration);
+
+        AxisCalibration decoded = ProfileCodec.decode(data).calibration;
+        assertEquals(calibration.getCenter(AXIS_X), decoded.getCenter(AXIS_X), 0f);
+        assertEquals(calibration.getDeadzone(AXIS_X), decoded.getDeadzone(AXIS_X), 0f);
+        assertEquals(calibration.apply(StateVector.axisSlot(AXIS_X), 1.5f), decoded.apply(StateVector.axisSlot(AXIS_X), 1.5f), 0f);
+        assertFalse(decoded.isCalibrated(AXIS_Y));
+    }
+
+    private float lastValue(int code) {
+        for (int i = codes.size() - 1; i >= 0; --i) {
+            if (codes.get(i) == code) return values.get(i);
+        }
+        throw new AssertionError("No value for " + code);
+    }
+}
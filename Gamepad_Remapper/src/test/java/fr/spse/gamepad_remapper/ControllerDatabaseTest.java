@@ -0,0 +1,77 @@
+package fr.spse.gamepad_remapper;
+
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_HAT_X;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_LTRIGGER;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_RX;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_Z;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_A;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_B;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_L2;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class ControllerDatabaseTest {
+
+    @Test
+    public void find_decodesRecord() throws IOException {
+        ControllerDatabase database = new ControllerDatabase(ByteBuffer.wrap(buildDatabase()));
+
+        ProfileCodec.Profile profile = database.find(0x045e, 0x028e);
+        assertEquals(KEYCODE_BUTTON_B, profile.keyMap.map(KEYCODE_BUTTON_A));
+        assertEquals(AXIS_HAT_X, profile.keyMap.map(AXIS_HAT_X));
+        assertEquals(AXIS_Z, profile.motionMap.map(AXIS_RX));
+
+        profile = database.find(0x057e, 0x2009);
+        assertEquals(AXIS_LTRIGGER, profile.keyMap.map(KEYCODE_BUTTON_L2));
+
+        assertNull(database.find(0x045e, 0x028f));
+        assertNull(database.find(0x1234, 0x5678));
+    }
+
+    @Test
+    public void find_invalidDatabaseIsEmpty() throws IOException {
+        byte[] data = buildDatabase();
+        assertNull(new ControllerDatabase(ByteBuffer.wrap(Arrays.copyOf(data, 12))).find(0x045e, 0x028e));
+
+        data[0] = 0;
+        assertNull(new ControllerDatabase(ByteBuffer.wrap(data)).find(0x045e, 0x028e));
+    }
+
+    /**
+     * Same layout as written by the compileControllerDatabase task
+     */
+    private static byte[] buildDatabase() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(0x474D4344);
+        output.writeByte(1);
+        output.writeInt(2);
+
+        // Index sorted by id
+        output.writeInt(0x045e028e);
+        output.writeInt(9 + 2 * 8);
+        output.writeInt(0x057e2009);
+        output.writeInt(9 + 2 * 8 + 10);
+
+        output.writeByte(1);
+        output.writeShort(KEYCODE_BUTTON_A);
+        output.writeShort(KEYCODE_BUTTON_B);
+        output.writeByte(1);
+        output.writeShort(AXIS_RX);
+        output.writeShort(AXIS_Z);
+
+        output.writeByte(1);
+        output.writeShort(KEYCODE_BUTTON_L2);
+        output.writeShort(AXIS_LTRIGGER);
+        output.writeByte(0);
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,55 @@
+package fr.spse.gamepad_remapper;
+
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_HAT_X;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_LTRIGGER;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_RTRIGGER;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_RX;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_RY;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_RZ;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_X;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_Y;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_Z;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_A;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_L2;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_DPAD_RIGHT;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class DefaultProfilesTest {
+
+    @Test
+    public void guess_standardGamepad() {
+        ProfileCodec.Profile profile = DefaultProfiles.guess(axes(AXIS_X, AXIS_Y, AXIS_Z, AXIS_RZ, AXIS_LTRIGGER, AXIS_RTRIGGER, AXIS_HAT_X));
+
+        assertEquals(KEYCODE_BUTTON_A, profile.keyMap.map(KEYCODE_BUTTON_A));
+        assertEquals(AXIS_HAT_X, profile.keyMap.map(RemapperCore.transformKeyEventInput(KEYCODE_DPAD_RIGHT)));
+        assertEquals(AXIS_Z, profile.motionMap.map(AXIS_Z));
+        assertEquals(AXIS_LTRIGGER, profile.motionMap.map(AXIS_LTRIGGER));
+        assertEquals(KEYCODE_BUTTON_L2, profile.keyMap.map(KEYCODE_BUTTON_L2));
+    }
+
+    @Test
+    public void guess_rightStickOnRotationAxis() {
+        ProfileCodec.Profile profile = DefaultProfiles.guess(axes(AXIS_X, AXIS_Y, AXIS_RX, AXIS_RY));
+
+        assertEquals(AXIS_Z, profile.motionMap.map(AXIS_RX));
+        assertEquals(AXIS_RZ, profile.motionMap.map(AXIS_RY));
+        // No analog trigger left, the digital ones drive the trigger axis
+        assertEquals(AXIS_LTRIGGER, profile.keyMap.map(KEYCODE_BUTTON_L2));
+    }
+
+    @Test
+    public void guess_triggersOnRotationAxis() {
+        ProfileCodec.Profile profile = DefaultProfiles.guess(axes(AXIS_X, AXIS_Y, AXIS_Z, AXIS_RZ, AXIS_RX, AXIS_RY));
+
+        assertEquals(AXIS_LTRIGGER, profile.motionMap.map(AXIS_RX));
+        assertEquals(AXIS_RTRIGGER, profile.motionMap.map(AXIS_RY));
+    }
+
+    private static long axes(int... axes) {
+        long bitset = 0;
+        for (int axis : axes) bitset |= 1L << axis;
+        return bitset;
+    }
+}
@@ -0,0 +1,85 @@
+package fr.spse.gamepad_remapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class GamepadStateBufferTest {
+    private final float[] values = new float[StateVector.KEY_SLOT_COUNT];
+
+    @Test
+    public void acquire_beforePublishIsEmpty() {
+        GamepadStateBuffer buffer = new GamepadStateBuffer();
+        GamepadState state = buffer.acquire();
+        assertEquals(0, state.getSequence());
+        assertEquals(0f, state.values[0], 0f);
+    }
+
+    @Test
+    public void acquire_returnsLatestPublished() {
+        GamepadStateBuffer buffer = new GamepadStateBuffer();
+        for (int i = 1; i <= 3; ++i) publish(buffer, i);
+
+        GamepadState state = buffer.acquire();
+        assertEquals(3, state.getSequence());
+        assertEquals(3f, state.values[0], 0f);
+        assertEquals(30, state.getEventTime());
+
+        // Nothing newer, the same snapshot is returned
+        assertSame(state, buffer.acquire());
+        publish(buffer, 4);
+        assertEquals(4, buffer.acquire().getSequence());
+    }
+
+    @Test
+    public void publish_withoutReaderNeverTouchesHeldSnapshot() {
+        GamepadStateBuffer buffer = new GamepadStateBuffer();
+        publish(buffer, 1);
+        GamepadState held = buffer.acquire();
+
+        // The reader holding a snapshot does not keep the writer from publishing
+        for (int i = 2; i <= 1000; ++i) publish(buffer, i);
+        assertEquals(1, held.getSequence());
+        assertEquals(1f, held.values[StateVector.KEY_SLOT_COUNT - 1], 0f);
+
+        assertEquals(1000, buffer.acquire().getSequence());
+    }
+
+    @Test(timeout = 30_000)
+    public void acquire_neverSeesTornSnapshot() throws InterruptedException {
+        final int publishCount = 200_000;
+        GamepadStateBuffer buffer = new GamepadStateBuffer();
+
+        Thread writer = new Thread(() -> {
+            float[] values = new float[StateVector.KEY_SLOT_COUNT];
+            for (int i = 1; i <= publishCount; ++i) {
+                Arrays.fill(values, i);
+                buffer.publish(values, i * 10L);
+            }
+        });
+        writer.start();
+
+        long lastSequence = 0;
+        while (lastSequence < publishCount) {
+            GamepadState state = buffer.acquire();
+            long sequence = state.getSequence();
+            assertTrue("Sequence went back", sequence >= lastSequence);
+            if (sequence == 0) continue;
+
+            // Every field comes from the same publish
+            assertEquals(sequence * 10L, state.getEventTime());
+            for (float value : state.values) assertEquals(sequence, (long) value);
+            lastSequence = sequence;
+        }
+        writer.join();
+    }
+
+    private void publish(GamepadStateBuffer buffer, int sequence) {
+        Arrays.fill(values, sequence);
+        buffer.publish(values, sequence * 10L);
+    }
+}
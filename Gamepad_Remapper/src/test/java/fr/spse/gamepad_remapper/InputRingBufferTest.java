@@ -0,0 +1,126 @@
+package fr.spse.gamepad_remapper;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class InputRingBufferTest {
+
+    @Test
+    public void capacity_isRoundedToPowerOfTwo() {
+        assertEquals(8, new InputRingBuffer(5).getCapacity());
+        assertEquals(8, new InputRingBuffer(8).getCapacity());
+        assertEquals(1, new InputRingBuffer(1).getCapacity());
+    }
+
+    @Test
+    public void drain_emptyBufferPassesNothing() {
+        InputRingBuffer buffer = new InputRingBuffer(4);
+        assertEquals(0, buffer.drain((code, value, eventTime, deviceId) -> {
+            throw new AssertionError("Nothing queued");
+        }));
+        assertEquals(0, buffer.drain(new int[4], new float[4], new long[4], new int[4]));
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void handle_fullBufferDropsNewInputs() {
+        InputRingBuffer buffer = new InputRingBuffer(4);
+        for (int i = 0; i < 6; ++i) buffer.handleGamepadInput(i, i, i, 1);
+
+        assertEquals(4, buffer.size());
+        assertEquals(2, buffer.getDroppedCount());
+        List<Integer> codes = new ArrayList<>();
+        buffer.drain((code, value, eventTime, deviceId) -> codes.add(code));
+        // The oldest inputs are kept
+        assertEquals(Arrays.asList(0, 1, 2, 3), codes);
+
+        // Room is made once drained
+        buffer.handleGamepadInput(7, 0, 0, 1);
+        assertEquals(1, buffer.size());
+        assertEquals(2, buffer.getDroppedCount());
+    }
+
+    @Test
+    public void drain_keepsOrderAcrossWrapAround() {
+        InputRingBuffer buffer = new InputRingBuffer(4);
+        int[] codes = new int[3];
+        float[] values = new float[3];
+        long[] eventTimes = new long[3];
+        int[] deviceIds = new int[3];
+
+        int next = 0, expected = 0;
+        // Enough rounds for the indexes to wrap around the array several times
+        for (int round = 0; round < 10; ++round) {
+            for (int i = 0; i < 3; ++i, ++next) buffer.handleGamepadInput(next, next / 2f, next * 10L, next % 2);
+
+            // Arrays smaller than the queued inputs leave the rest in the buffer
+            int count = buffer.drain(codes, values, eventTimes, deviceIds);
+            assertEquals(3, count);
+            for (int i = 0; i < count; ++i, ++expected) {
+                assertEquals(expected, codes[i]);
+                assertEquals(expected / 2f, values[i], 0f);
+                assertEquals(expected * 10L, eventTimes[i]);
+                assertEquals(expected % 2, deviceIds[i]);
+            }
+        }
+        assertEquals(0, buffer.size());
+        assertEquals(0, buffer.getDroppedCount());
+    }
+
+    @Test
+    public void drain_leavesInputsNotFittingTheArrays() {
+        InputRingBuffer buffer = new InputRingBuffer(8);
+        for (int i = 0; i < 5; ++i) buffer.handleGamepadInput(i, 0, 0, 0);
+
+        int[] codes = new int[2];
+        assertEquals(2, buffer.drain(codes, new float[2], new long[2], new int[2]));
+        assertEquals(1, codes[1]);
+        assertEquals(3, buffer.size());
+        assertEquals(2, buffer.drain(codes, new float[2], new long[2], new int[2]));
+        assertEquals(2, codes[0]);
+    }
+
+    @Test(timeout = 30_000)
+    public void producerAndConsumer_loseNothing() throws InterruptedException {
+        final int inputCount = 1_000_000;
+        InputRingBuffer buffer = new InputRingBuffer(64);
+
+        // Retries dropped inputs, so every input goes through once, in order
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < inputCount; ++i) {
+                long dropped = buffer.getDroppedCount();
+                buffer.handleGamepadInput(i, i, i, i);
+                while (buffer.getDroppedCount() != dropped) {
+                    dropped = buffer.getDroppedCount();
+                    Thread.yield();
+                    buffer.handleGamepadInput(i, i, i, i);
+                }
+            }
+        });
+
+        int[] next = {0};
+        AssertionError[] error = {null};
+        TimedGamepadHandler consumer = (code, value, eventTime, deviceId) -> {
+            // A torn record would mismatch on one of its fields
+            if (code != next[0] || value != (float) next[0] || eventTime != next[0] || deviceId != next[0]) {
+                if (error[0] == null) error[0] = new AssertionError("Expected " + next[0] + ", got " + code);
+            }
+            ++next[0];
+        };
+
+        producer.start();
+        while (next[0] < inputCount) {
+            if (buffer.drain(consumer) == 0) Thread.yield();
+        }
+        producer.join();
+
+        if (error[0] != null) throw error[0];
+        assertEquals(inputCount, next[0]);
+        assertEquals(0, buffer.size());
+    }
+}
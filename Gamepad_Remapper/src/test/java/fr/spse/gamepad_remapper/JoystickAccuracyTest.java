@@ -0,0 +1,63 @@
+package fr.spse.gamepad_remapper;
+
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_X;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_Y;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+
+/**
+ * Checks the joystick deadzone against the former computation, done in double precision through Math.hypot
+ */
+public class JoystickAccuracyTest {
+    private static final float TOLERANCE = 1e-6f;
+
+    private final float[] values = new float[GamepadCodes.AXIS_GENERIC_16 + 1];
+    private final TimedGamepadHandler handler = (code, value, eventTime, deviceId) -> values[code] = value;
+
+    @Test
+    public void radialDeadzone_matchesReference() {
+        float[] deadzones = {0f, 0.05f, 0.1f, 0.25f, 0.5f};
+        for (float deadzone : deadzones) {
+            RemapperCore core = new RemapperCore(new HashMap<>(), new HashMap<>());
+            core.setDeadzones(null, deadzone);
+            TestMotionSamples samples = new TestMotionSamples(0);
+
+            for (int i = -100; i <= 100; ++i) {
+                for (int j = -100; j <= 100; ++j) {
+                    float x = i / 100f;
+                    float y = j / 100f;
+                    core.handleMotionInput(samples.set(AXIS_X, x).set(AXIS_Y, y), handler);
+
+                    float[] expected = reference(x, y, deadzone);
+                    assertEquals(expected[0], values[AXIS_X], TOLERANCE);
+                    assertEquals(expected[1], values[AXIS_Y], TOLERANCE);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void radialDeadzone_edgeIsZero() {
+        RemapperCore core = new RemapperCore(new HashMap<>(), new HashMap<>());
+        core.setDeadzones(null, 0f);
+        TestMotionSamples samples = new TestMotionSamples(0);
+
+        core.handleMotionInput(samples.set(AXIS_X, 0.5f), handler);
+        core.handleMotionInput(samples.set(AXIS_X, 0f), handler);
+        assertEquals(0f, values[AXIS_X], 0f);
+        assertEquals(0f, values[AXIS_Y], 0f);
+    }
+
+    private static float[] reference(float x, float y, float deadzone) {
+        double magnitude = (float) Math.hypot(x, y);
+        // The former computation used a strict comparison, giving NaN for a centered stick without deadzone
+        if (magnitude <= deadzone) return new float[]{0, 0};
+        return new float[]{
+                (float) ((x / magnitude) * ((magnitude - deadzone) / (1 - deadzone))),
+                (float) ((y / magnitude) * ((magnitude - deadzone) / (1 - deadzone)))
+        };
+    }
+}
@@ -0,0 +1,83 @@
+package fr.spse.gamepad_remapper;
+
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_A;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_B;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_L1;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_R1;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_X;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_Y;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class MacroEngineTest {
+    private static final long MS = 1_000_000L;
+
+    private final List<String> inputs = new ArrayList<>();
+    private final TimedGamepadHandler handler = (code, value, eventTime, deviceId) ->
+            inputs.add(code + "=" + (int) value + "@" + eventTime / MS);
+
+    @Test
+    public void turbo_togglesWhileHeld() {
+        MacroEngine engine = new MacroEngine.Builder().addTurbo(KEYCODE_BUTTON_A, 10).build(handler);
+
+        engine.handleGamepadInput(KEYCODE_BUTTON_A, 1, 1000 * MS, 1);
+        engine.tick(1120 * MS);
+        engine.tick(1160 * MS);
+        engine.handleGamepadInput(KEYCODE_BUTTON_A, 0, 1170 * MS, 1);
+        engine.tick(2000 * MS);
+
+        String a = KEYCODE_BUTTON_A + "=";
+        // Released while off, nothing more to pass
+        assertEquals(list(a + "1@1000", a + "0@1050", a + "1@1100", a + "0@1150"), inputs);
+    }
+
+    @Test
+    public void chord_pressesTargetInstead() {
+        MacroEngine engine = new MacroEngine.Builder().addChord(KEYCODE_BUTTON_X, KEYCODE_BUTTON_L1, KEYCODE_BUTTON_R1).build(handler);
+
+        engine.handleGamepadInput(KEYCODE_BUTTON_L1, 1, 1000 * MS, 1);
+        engine.handleGamepadInput(KEYCODE_BUTTON_R1, 1, 1020 * MS, 1);
+        engine.handleGamepadInput(KEYCODE_BUTTON_R1, 0, 1200 * MS, 1);
+        engine.handleGamepadInput(KEYCODE_BUTTON_L1, 0, 1210 * MS, 1);
+        assertEquals(list(KEYCODE_BUTTON_X + "=1@1020", KEYCODE_BUTTON_X + "=0@1200"), inputs);
+    }
+
+    @Test
+    public void chord_delayedPressesPassAfterWindow() {
+        MacroEngine engine = new MacroEngine.Builder().addChord(KEYCODE_BUTTON_X, KEYCODE_BUTTON_L1, KEYCODE_BUTTON_R1).build(handler);
+
+        engine.handleGamepadInput(KEYCODE_BUTTON_L1, 1, 1000 * MS, 1);
+        engine.tick(1049 * MS);
+        assertEquals(0, inputs.size());
+        engine.tick(1050 * MS);
+        engine.handleGamepadInput(KEYCODE_BUTTON_R1, 1, 1100 * MS, 1);
+        engine.handleGamepadInput(KEYCODE_BUTTON_L1, 0, 1200 * MS, 1);
+        assertEquals(list(KEYCODE_BUTTON_L1 + "=1@1050", KEYCODE_BUTTON_R1 + "=1@1100", KEYCODE_BUTTON_L1 + "=0@1200"), inputs);
+    }
+
+    @Test
+    public void macro_playsTimedSequence() {
+        MacroEngine engine = new MacroEngine.Builder()
+                .addMacro(KEYCODE_BUTTON_Y, new MacroEngine.Macro()
+                        .tap(KEYCODE_BUTTON_A, 0, 30)
+                        .tap(KEYCODE_BUTTON_B, 20, 30))
+                .build(handler);
+
+        engine.handleGamepadInput(KEYCODE_BUTTON_Y, 1, 1000 * MS, 1);
+        engine.handleGamepadInput(KEYCODE_BUTTON_Y, 0, 1010 * MS, 1);
+        // Ticks far apart, steps keep their own time
+        engine.tick(1500 * MS);
+        assertEquals(list(KEYCODE_BUTTON_A + "=1@1000", KEYCODE_BUTTON_A + "=0@1030",
+                KEYCODE_BUTTON_B + "=1@1050", KEYCODE_BUTTON_B + "=0@1080"), inputs);
+    }
+
+    private static List<String> list(String... values) {
+        List<String> list = new ArrayList<>();
+        for (String value : values) list.add(value);
+        return list;
+    }
+}
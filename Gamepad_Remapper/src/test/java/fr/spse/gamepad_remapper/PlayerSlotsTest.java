@@ -0,0 +1,74 @@
+package fr.spse.gamepad_remapper;
+
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_A;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.view.InputDevice;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class PlayerSlotsTest {
+
+    @Test
+    public void assign_keepsPlayerAcrossReconnection() {
+        PlayerSlots slots = new PlayerSlots(2);
+        assertEquals(0, slots.assign(10, "pad-a"));
+        assertEquals(1, slots.assign(11, "pad-b"));
+        assertEquals(PlayerSlots.NO_PLAYER, slots.assign(12, "pad-c"));
+
+        slots.remove(10, 0);
+        assertFalse(slots.isConnected(0));
+        slots.remove(11, 0);
+
+        // pad-b comes back first, with a new device id, and still gets its player
+        assertEquals(1, slots.assign(21, "pad-b"));
+        assertEquals(0, slots.assign(22, "pad-c"));
+        assertEquals(PlayerSlots.NO_PLAYER, slots.assign(20, "pad-a"));
+    }
+
+    @Test
+    public void remove_releasesHeldInputs() {
+        PlayerSlots slots = new PlayerSlots(4);
+        slots.setStateEnabled(true);
+        List<Float> values = new ArrayList<>();
+        slots.setHandler(0, (code, value, eventTime, deviceId) -> values.add(value));
+
+        int player = slots.assign(10, "pad-a");
+        slots.getRouter(player).handleGamepadInput(KEYCODE_BUTTON_A, 1, 5, 10);
+        slots.endEvent(player, 5);
+        assertEquals(1f, slots.getState(player).getValue(KEYCODE_BUTTON_A), 0f);
+
+        slots.remove(10, 6);
+        assertEquals(2, values.size());
+        assertEquals(0f, values.get(1), 0f);
+        assertEquals(0f, slots.getState(player).getValue(KEYCODE_BUTTON_A), 0f);
+    }
+
+    @Test
+    public void swap_exchangesDevices() {
+        PlayerSlots slots = new PlayerSlots(4);
+        slots.assign(10, "pad-a");
+        slots.assign(11, "pad-b");
+
+        slots.swap(0, 3, 0);
+        assertEquals(3, slots.getPlayer(10));
+        assertEquals(PlayerSlots.NO_DEVICE, slots.getDeviceId(0));
+        assertEquals(0, slots.assign(12, "pad-c"));
+    }
+
+    @Test
+    public void isGamepad_excludesOtherDevices() {
+        assertTrue(PlayerSlots.isGamepad(InputDevice.SOURCE_GAMEPAD));
+        assertTrue(PlayerSlots.isGamepad(InputDevice.SOURCE_JOYSTICK));
+        assertTrue(PlayerSlots.isGamepad(InputDevice.SOURCE_GAMEPAD | InputDevice.SOURCE_KEYBOARD | InputDevice.SOURCE_DPAD));
+        // Volume keys and keyboards share the button class with gamepads
+        assertFalse(PlayerSlots.isGamepad(InputDevice.SOURCE_KEYBOARD));
+        assertFalse(PlayerSlots.isGamepad(InputDevice.SOURCE_KEYBOARD | InputDevice.SOURCE_DPAD));
+        assertFalse(PlayerSlots.isGamepad(0));
+    }
+}
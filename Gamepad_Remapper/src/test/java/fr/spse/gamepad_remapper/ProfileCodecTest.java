@@ -0,0 +1,159 @@
+package fr.spse.gamepad_remapper;
+
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_LTRIGGER;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_RX;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_X;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_Y;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_Z;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_A;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_B;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_L2;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_DPAD_UP;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+public class ProfileCodecTest {
+
+    @Test
+    public void encode_roundTripsAllSections() throws JSONException {
+        Map<Integer, Integer> keyMap = new HashMap<>();
+        keyMap.put(KEYCODE_BUTTON_A, KEYCODE_BUTTON_B);
+        keyMap.put(KEYCODE_BUTTON_B, KEYCODE_BUTTON_A);
+        Map<Integer, Integer> motionMap = new HashMap<>();
+        motionMap.put(AXIS_Z, AXIS_RX);
+        AxisBindings bindings = new AxisBindings.Builder()
+                .addAxisToKey(AXIS_Y, AxisBindings.NEGATIVE, KEYCODE_DPAD_UP, 0.5f, 0.3f)
+                .addKeyToAxis(KEYCODE_BUTTON_L2, AXIS_LTRIGGER, 1f)
+                .build();
+        AxisCalibration.Builder calibrationBuilder = new AxisCalibration.Builder();
+        for (int i = 0; i < AxisCalibration.MIN_SAMPLES; ++i) {
+            calibrationBuilder.addSample(AXIS_X, i % 2 == 0 ? 0.05f : 0.15f);
+        }
+        AxisCalibration calibration = calibrationBuilder.build();
+
+        ProfileCodec.Profile profile = ProfileCodec.decodeStored(ProfileCodec.encode(
+                MappingTable.from(keyMap), MappingTable.from(motionMap), bindings, calibration));
+
+        assertEquals(KEYCODE_BUTTON_B, profile.keyMap.get(KEYCODE_BUTTON_A));
+        assertEquals(KEYCODE_BUTTON_A, profile.keyMap.get(KEYCODE_BUTTON_B));
+        assertEquals(2, profile.keyMap.size());
+        assertEquals(AXIS_RX, profile.motionMap.get(AXIS_Z));
+        assertEquals(1, profile.motionMap.size());
+
+        assertArrayEquals(bindings.axisSources, profile.axisBindings.axisSources);
+        assertArrayEquals(bindings.axisDirections, profile.axisBindings.axisDirections);
+        assertArrayEquals(bindings.keyTargets, profile.axisBindings.keyTargets);
+        assertArrayEquals(bindings.activationThresholds, profile.axisBindings.activationThresholds, 0f);
+        assertArrayEquals(bindings.resetThresholds, profile.axisBindings.resetThresholds, 0f);
+        assertArrayEquals(bindings.keySources, profile.axisBindings.keySources);
+        assertArrayEquals(bindings.axisTargets, profile.axisBindings.axisTargets);
+        assertArrayEquals(bindings.axisValues, profile.axisBindings.axisValues, 0f);
+
+        assertEquals(calibration.getCenter(AXIS_X), profile.calibration.getCenter(AXIS_X), 0f);
+        assertEquals(calibration.getDeadzone(AXIS_X), profile.calibration.getDeadzone(AXIS_X), 0f);
+        assertArrayEquals(calibration.deadzones, profile.calibration.deadzones, 0f);
+    }
+
+    @Test
+    public void decode_flippedByteFailsChecksum() {
+        byte[] data = ProfileCodec.encode(MappingTable.from(singleMapping(KEYCODE_BUTTON_A, KEYCODE_BUTTON_B)),
+                MappingTable.from(new HashMap<>()));
+
+        for (int i = 0; i < data.length; ++i) {
+            byte[] corrupted = data.clone();
+            corrupted[i] ^= 0x10;
+            try {
+                ProfileCodec.decodeStored(corrupted);
+                fail("Byte " + i + " flipped, yet decoded");
+            } catch (JSONException expected) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void decode_skipsUnknownSections() {
+        ProfileCodec.ByteWriter payload = new ProfileCodec.ByteWriter();
+        ProfileCodec.ByteWriter writer = header();
+        payload.writeBytes(new byte[]{1, 2, 3, 4, 5}, 5);
+        writer.writeSection(42, payload);
+        payload.writeVarint(1);
+        payload.writeSignedVarint(KEYCODE_BUTTON_A);
+        payload.writeSignedVarint(KEYCODE_BUTTON_B);
+        writer.writeSection(1, payload);
+        payload.writeVarint(0);
+        writer.writeSection(2, payload);
+        // Empty unknown section, right before the end
+        writer.writeSection(127, payload);
+
+        ProfileCodec.Profile profile = ProfileCodec.decode(close(writer));
+        assertEquals(KEYCODE_BUTTON_B, profile.keyMap.get(KEYCODE_BUTTON_A));
+        assertEquals(0, profile.motionMap.size());
+    }
+
+    @Test
+    public void decode_rejectsCodesOutOfBounds() {
+        ProfileCodec.ByteWriter payload = new ProfileCodec.ByteWriter();
+        ProfileCodec.ByteWriter writer = header();
+        payload.writeVarint(1);
+        payload.writeSignedVarint(Integer.MAX_VALUE - 1);
+        payload.writeSignedVarint(KEYCODE_BUTTON_B);
+        writer.writeSection(1, payload);
+        payload.writeVarint(0);
+        writer.writeSection(2, payload);
+
+        try {
+            ProfileCodec.decodeStored(close(writer));
+            fail("Huge code decoded");
+        } catch (JSONException expected) {
+            assertTrue(expected.getMessage().contains("out of bounds"));
+        }
+        try {
+            ProfileCodec.decodeLegacy("{\"keyMap\": {\"2147483647\": 96}, \"motionMap\": {}}");
+            fail("Huge legacy code decoded");
+        } catch (JSONException expected) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void decodeLegacy_readsJsonFormat() throws JSONException {
+        ProfileCodec.Profile profile = ProfileCodec.decodeLegacy(
+                "{\"keyMap\": {\"96\": 97}, \"motionMap\": {\"11\": 0}}");
+        assertEquals(97, profile.keyMap.get(96));
+        assertEquals(0, profile.motionMap.get(11));
+    }
+
+    private static Map<Integer, Integer> singleMapping(int source, int target) {
+        Map<Integer, Integer> map = new HashMap<>();
+        map.put(source, target);
+        return map;
+    }
+
+    private static ProfileCodec.ByteWriter header() {
+        ProfileCodec.ByteWriter writer = new ProfileCodec.ByteWriter();
+        writer.writeBytes(new byte[]{'G', 'M', 'R', 'P'}, 4);
+        writer.writeByte(ProfileCodec.VERSION);
+        return writer;
+    }
+
+    /**
+     * Add the end tag and the checksum
+     */
+    private static byte[] close(ProfileCodec.ByteWriter writer) {
+        writer.writeByte(0);
+        CRC32 crc = new CRC32();
+        crc.update(writer.data, 0, writer.size);
+        writer.writeInt((int) crc.getValue());
+        return writer.toByteArray();
+    }
+}
@@ -0,0 +1,166 @@
+package fr.spse.gamepad_remapper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ProfileFileTest {
+    private static final byte STATE_FREE = 0, STATE_LIVE = 1;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void write_isReadAfterReopen() throws IOException {
+        File file = folder.newFile();
+        ProfileFile profiles = new ProfileFile(file);
+        assertTrue(profiles.write("a", data(1, 10)));
+        assertTrue(profiles.write("b", data(2, 20)));
+        assertTrue(profiles.write("a", data(3, 30)));
+        profiles.remove("b");
+        assertTrue(profiles.write("c", data(4, 0)));
+        assertTrue(profiles.sync());
+
+        profiles = new ProfileFile(file);
+        assertArrayEquals(data(3, 30), profiles.read("a"));
+        assertNull(profiles.read("b"));
+        assertArrayEquals(data(4, 0), profiles.read("c"));
+        String[] names = profiles.names();
+        Arrays.sort(names);
+        assertArrayEquals(new String[]{"a", "c"}, names);
+    }
+
+    @Test
+    public void reopen_interruptedWriteKeepsPreviousVersion() throws IOException {
+        File file = folder.newFile();
+        ProfileFile profiles = new ProfileFile(file);
+        profiles.write("a", data(1, 10));
+        profiles.write("a", data(2, 10));
+        profiles.sync();
+
+        // Interrupted before the new record was marked live: the previous one is still live
+        List<Integer> records = records(file);
+        setState(file, records.get(0), STATE_LIVE);
+        setState(file, records.get(1), STATE_FREE);
+        assertArrayEquals(data(1, 10), new ProfileFile(file).read("a"));
+
+        // Interrupted before the previous record was marked dead: the newest one wins
+        setState(file, records.get(1), STATE_LIVE);
+        profiles = new ProfileFile(file);
+        assertArrayEquals(data(2, 10), profiles.read("a"));
+        profiles.write("b", data(3, 10));
+        profiles.sync();
+        assertArrayEquals(data(2, 10), new ProfileFile(file).read("a"));
+    }
+
+    @Test
+    public void reopen_dropsCorruptedAndTruncatedRecords() throws IOException {
+        File file = folder.newFile();
+        ProfileFile profiles = new ProfileFile(file);
+        profiles.write("a", data(1, 100));
+        profiles.write("b", data(2, 100));
+        profiles.write("c", data(3, 100));
+        profiles.sync();
+
+        // Flip a data byte of "b", then cut the file in the middle of "c"
+        List<Integer> records = records(file);
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.seek(records.get(1) + ProfileFile.RECORD_HEADER_SIZE + 10);
+            raw.write(0x55);
+            raw.setLength(records.get(2) + ProfileFile.RECORD_HEADER_SIZE + 50);
+        }
+
+        profiles = new ProfileFile(file);
+        assertArrayEquals(data(1, 100), profiles.read("a"));
+        assertFalse(profiles.contains("b"));
+        assertFalse(profiles.contains("c"));
+
+        // Writes still go after the damaged records
+        profiles.write("d", data(4, 100));
+        profiles.sync();
+        profiles = new ProfileFile(file);
+        assertArrayEquals(data(1, 100), profiles.read("a"));
+        assertArrayEquals(data(4, 100), profiles.read("d"));
+    }
+
+    @Test
+    public void write_growsFile() throws IOException {
+        File file = folder.newFile();
+        ProfileFile profiles = new ProfileFile(file);
+        long initialLength = file.length();
+        for (int i = 0; i < 100; ++i) {
+            assertTrue(profiles.write("profile-" + i, data(i, 1000)));
+        }
+        profiles.sync();
+        assertTrue(file.length() >= 100 * 1000);
+        assertTrue(file.length() > initialLength);
+
+        profiles = new ProfileFile(file);
+        assertEquals(100, profiles.names().length);
+        for (int i = 0; i < 100; ++i) {
+            assertArrayEquals(data(i, 1000), profiles.read("profile-" + i));
+        }
+    }
+
+    @Test
+    public void write_compactsDeadRecords() throws IOException {
+        File file = folder.newFile();
+        ProfileFile profiles = new ProfileFile(file);
+        profiles.write("kept", data(-1, 500));
+        // Much more data than the file ends up holding
+        for (int i = 0; i < 200; ++i) {
+            profiles.write("rewritten", data(i, 1000));
+        }
+        profiles.sync();
+        assertTrue("Not compacted: " + file.length(), file.length() < 100 * 1000);
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+
+        profiles = new ProfileFile(file);
+        assertArrayEquals(data(-1, 500), profiles.read("kept"));
+        assertArrayEquals(data(199, 1000), profiles.read("rewritten"));
+        assertEquals(2, profiles.names().length);
+    }
+
+    private static byte[] data(int seed, int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; ++i) data[i] = (byte) (seed * 31 + i);
+        return data;
+    }
+
+    /**
+     * @return The position of each record, in file order
+     */
+    private static List<Integer> records(File file) throws IOException {
+        List<Integer> positions = new ArrayList<>();
+        try (RandomAccessFile raw = new RandomAccessFile(file, "r")) {
+            int position = ProfileFile.HEADER_SIZE;
+            while (position + ProfileFile.RECORD_HEADER_SIZE <= raw.length()) {
+                raw.seek(position);
+                if (raw.readByte() == STATE_FREE) break;
+                positions.add(position);
+                position += raw.readInt();
+            }
+        }
+        return positions;
+    }
+
+    private static void setState(File file, int position, byte state) throws IOException {
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.seek(position);
+            raw.write(state);
+        }
+    }
+}
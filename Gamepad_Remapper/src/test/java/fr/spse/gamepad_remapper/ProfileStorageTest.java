@@ -0,0 +1,62 @@
+package fr.spse.gamepad_remapper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class ProfileStorageTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void read_seesPendingSaves() throws IOException {
+        File file = folder.newFile();
+        ProfileStorage storage = new ProfileStorage(new ProfileFile(file), null);
+        storage.write("a", new byte[]{1});
+        storage.save("a", new byte[]{2});
+        storage.save("b", new byte[]{3});
+
+        // Not written yet, but already visible
+        assertNull(new ProfileFile(file).read("b"));
+        assertArrayEquals(new byte[]{2}, storage.read("a"));
+        assertArrayEquals(new byte[]{3}, storage.read("b"));
+        assertTrue(storage.contains("b"));
+        String[] names = storage.names();
+        Arrays.sort(names);
+        assertArrayEquals(new String[]{"a", "b"}, names);
+    }
+
+    @Test
+    public void flush_writesPendingSaves() throws IOException {
+        File file = folder.newFile();
+        ProfileStorage storage = new ProfileStorage(new ProfileFile(file), null);
+        storage.save("a", new byte[]{1});
+        storage.save("a", new byte[]{2});
+        storage.flush();
+
+        ProfileFile profiles = new ProfileFile(file);
+        assertArrayEquals(new byte[]{2}, profiles.read("a"));
+        assertArrayEquals(new byte[]{2}, storage.read("a"));
+
+        // A direct write replaces the pending save
+        storage.save("a", new byte[]{3});
+        storage.write("a", new byte[]{4});
+        storage.flush();
+        assertArrayEquals(new byte[]{4}, new ProfileFile(file).read("a"));
+
+        storage.save("b", new byte[]{5});
+        storage.clear();
+        assertFalse(storage.contains("b"));
+        assertNull(storage.read("a"));
+    }
+}
@@ -0,0 +1,98 @@
+package fr.spse.gamepad_remapper;
+
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_HAT_X;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_HAT_Y;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_LTRIGGER;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_RTRIGGER;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_RZ;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_X;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_Y;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_Z;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Makes sure the motion path does not allocate once warmed up.
+ */
+public class RemapperAllocationTest {
+    private static final int[] AXES = {AXIS_HAT_X, AXIS_HAT_Y, AXIS_RTRIGGER, AXIS_LTRIGGER, AXIS_X, AXIS_Y, AXIS_Z, AXIS_RZ};
+    private static final float[] VALUES = {0f, 0.25f, 0.5f, 1f, -0.5f, -1f};
+
+    private int callbackCount = 0;
+
+    @Test
+    public void motionDiff_doesNotAllocate() {
+        RemapperCore remapper = new RemapperCore(new MappingTable(new int[0], new int[0]), new MappingTable(new int[0], new int[0]));
+        TimedGamepadHandler handler = (code, value, eventTime, deviceId) -> ++callbackCount;
+
+        // Warm up, so the JIT and class loading are out of the way
+        simulateEvents(remapper, handler, 20_000);
+        simulateEvents(remapper, handler, 0);
+
+        long before = allocatedBytes();
+        simulateEvents(remapper, handler, 0);
+        long overhead = allocatedBytes() - before;
+
+        before = allocatedBytes();
+        simulateEvents(remapper, handler, 10_000);
+        long allocated = allocatedBytes() - before - overhead;
+
+        assertEquals(0, allocated);
+    }
+
+    @Test
+    public void motionInput_doesNotAllocate() {
+        RemapperCore remapper = new RemapperCore(new MappingTable(new int[0], new int[0]), new MappingTable(new int[0], new int[0]));
+        remapper.setHistoricalSamplesEnabled(true);
+        TestMotionSamples samples = new TestMotionSamples(4);
+        TimedGamepadHandler handler = (code, value, eventTime, deviceId) -> ++callbackCount;
+
+        // Warm up, so the JIT and class loading are out of the way
+        simulateEvents(remapper, samples, handler, 20_000);
+        simulateEvents(remapper, samples, handler, 0);
+
+        long before = allocatedBytes();
+        simulateEvents(remapper, samples, handler, 0);
+        long overhead = allocatedBytes() - before;
+
+        before = allocatedBytes();
+        simulateEvents(remapper, samples, handler, 10_000);
+        long allocated = allocatedBytes() - before - overhead;
+
+        assertEquals(0, allocated);
+    }
+
+    @Test
+    public void motionDiff_onlyReportsChanges() {
+        RemapperCore remapper = new RemapperCore(new MappingTable(new int[0], new int[0]), new MappingTable(new int[0], new int[0]));
+        TimedGamepadHandler handler = (code, value, eventTime, deviceId) -> ++callbackCount;
+
+        remapper.handleMotionIfDifferent(AXIS_X, 0.5f, handler);
+        remapper.handleMotionIfDifferent(AXIS_X, 0.5f, handler);
+        remapper.handleMotionIfDifferent(AXIS_X, 0f, handler);
+        assertEquals(2, callbackCount);
+    }
+
+    private static void simulateEvents(RemapperCore remapper, TimedGamepadHandler handler, int eventCount) {
+        for (int event = 0; event < eventCount; ++event) {
+            for (int i = 0; i < AXES.length; ++i) {
+                remapper.handleMotionIfDifferent(AXES[i], VALUES[(event + i) % VALUES.length], handler);
+            }
+        }
+    }
+
+    private static void simulateEvents(RemapperCore remapper, TestMotionSamples samples, TimedGamepadHandler handler, int eventCount) {
+        for (int event = 0; event < eventCount; ++event) {
+            samples.fill(event);
+            remapper.handleMotionInput(samples, handler);
+        }
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
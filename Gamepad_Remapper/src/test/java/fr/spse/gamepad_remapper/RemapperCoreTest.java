@@ -0,0 +1,165 @@
+package fr.spse.gamepad_remapper;
+
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_HAT_Y;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_LTRIGGER;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_RTRIGGER;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_X;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_Y;
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_Z;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_A;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_B;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_DPAD_UP;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class RemapperCoreTest {
+    private final List<Integer> codes = new ArrayList<>();
+    private final List<Float> values = new ArrayList<>();
+    private final TimedGamepadHandler handler = (code, value, eventTime, deviceId) -> {
+        codes.add(code);
+        values.add(value);
+    };
+
+    @Test
+    public void keyInput_isRemapped() {
+        Map<Integer, Integer> keyMap = new HashMap<>();
+        keyMap.put(KEYCODE_BUTTON_A, KEYCODE_BUTTON_B);
+        RemapperCore core = new RemapperCore(keyMap, new HashMap<>());
+
+        core.handleKeyInput(KEYCODE_BUTTON_A, true, 0, 1, handler);
+        core.handleKeyInput(KEYCODE_BUTTON_A, true, 1, 1, handler);
+        core.handleKeyInput(KEYCODE_BUTTON_A, false, 2, 1, handler);
+
+        assertEquals(2, codes.size());
+        assertEquals(KEYCODE_BUTTON_B, (int) codes.get(0));
+        assertEquals(1f, values.get(0), 0f);
+        assertEquals(0f, values.get(1), 0f);
+    }
+
+    @Test
+    public void keyInput_dpadUpIsNegativeHat() {
+        Map<Integer, Integer> keyMap = new HashMap<>();
+        keyMap.put(AXIS_HAT_Y, AXIS_HAT_Y);
+        RemapperCore core = new RemapperCore(keyMap, new HashMap<>());
+
+        core.handleKeyInput(KEYCODE_DPAD_UP, true, 0, 1, handler);
+
+        assertEquals(AXIS_HAT_Y, (int) codes.get(0));
+        assertEquals(-1f, values.get(0), 0f);
+    }
+
+    @Test
+    public void motionInput_appliesDeadzone() {
+        RemapperCore core = new RemapperCore(new HashMap<>(), new HashMap<>());
+        core.setDeadzones(null, 0.2f);
+        TestMotionSamples samples = new TestMotionSamples(0);
+
+        core.handleMotionInput(samples.set(AXIS_X, 0.1f), handler);
+        assertEquals(0f, lastValue(AXIS_X), 0f);
+
+        core.handleMotionInput(samples.set(AXIS_X, 1f), handler);
+        assertEquals(1f, lastValue(AXIS_X), 1e-6f);
+
+        core.handleMotionInput(samples.set(AXIS_X, 0.6f), handler);
+        assertEquals(0.5f, lastValue(AXIS_X), 1e-6f);
+    }
+
+    @Test
+    public void motionInput_isRemapped() {
+        Map<Integer, Integer> motionMap = new HashMap<>();
+        motionMap.put(AXIS_Z, AXIS_X);
+        motionMap.put(AXIS_X, AXIS_Z);
+        RemapperCore core = new RemapperCore(new HashMap<>(), motionMap);
+        core.setDeadzones(null, 0.2f);
+
+        core.handleMotionInput(new TestMotionSamples(0).set(AXIS_Z, 1f), handler);
+
+        assertEquals(1f, lastValue(AXIS_X), 1e-6f);
+        assertEquals(0f, lastValue(AXIS_Z), 0f);
+    }
+
+    @Test
+    public void historicalSamples_arePassedAsOneBatch() {
+        RemapperCore core = new RemapperCore(new HashMap<>(), new HashMap<>());
+        core.setHistoricalSamplesEnabled(true);
+        TestMotionSamples samples = new TestMotionSamples(2);
+        samples.values[0][AXIS_Y] = 0.5f;
+        samples.values[1][AXIS_Y] = 0.75f;
+        samples.values[2][AXIS_Y] = 1f;
+        samples.times[0] = 10;
+        samples.times[1] = 20;
+        samples.times[2] = 30;
+
+        final int[] batchCount = {0};
+        final List<Long> yTimes = new ArrayList<>();
+        BatchGamepadHandler batchHandler = new BatchGamepadHandler() {
+            @Override
+            public void handleGamepadInputBatch(int[] codes, float[] values, long[] timestamps, int count) {
+                ++batchCount[0];
+                for (int i = 0; i < count; ++i) {
+                    if (codes[i] == AXIS_Y) yTimes.add(timestamps[i]);
+                }
+            }
+
+            @Override
+            public void handleGamepadInput(int code, float value) {
+                throw new AssertionError("Inputs must be batched");
+            }
+        };
+        core.handleMotionInput(samples, new GamepadHandlerAdapter(batchHandler));
+
+        assertEquals(1, batchCount[0]);
+        assertEquals(3, yTimes.size());
+        assertEquals(30L, (long) yTimes.get(2));
+    }
+
+    @Test
+    public void motionInput_smallChangesAreSuppressed() {
+        RemapperCore core = new RemapperCore(new HashMap<>(), new HashMap<>());
+        core.setAxisChangeThreshold(AXIS_RTRIGGER, 0.1f);
+        TestMotionSamples samples = new TestMotionSamples(0);
+
+        float[] positions = {0.5f, 0.55f, 0.58f, 0.61f, 0.95f, 1f, 0f};
+        for (float position : positions) {
+            core.handleMotionInput(samples.set(AXIS_RTRIGGER, position), handler);
+        }
+        // Only the start, the large moves and the extremes are passed
+        assertEquals(5, count(AXIS_RTRIGGER));
+        assertEquals(0f, lastValue(AXIS_RTRIGGER), 0f);
+    }
+
+    @Test
+    public void motionInput_isQuantized() {
+        RemapperCore core = new RemapperCore(new HashMap<>(), new HashMap<>());
+        core.setAxisQuantization(AXIS_LTRIGGER, 1 / 4f);
+        TestMotionSamples samples = new TestMotionSamples(0);
+
+        core.handleMotionInput(samples.set(AXIS_LTRIGGER, 0.26f), handler);
+        assertEquals(0.25f, lastValue(AXIS_LTRIGGER), 0f);
+        core.handleMotionInput(samples.set(AXIS_LTRIGGER, 0.3f), handler);
+        core.handleMotionInput(samples.set(AXIS_LTRIGGER, 0.99f), handler);
+        assertEquals(1f, lastValue(AXIS_LTRIGGER), 0f);
+        assertEquals(2, count(AXIS_LTRIGGER));
+    }
+
+    private int count(int code) {
+        int count = 0;
+        for (int c : codes) {
+            if (c == code) ++count;
+        }
+        return count;
+    }
+
+    private float lastValue(int code) {
+        for (int i = codes.size() - 1; i >= 0; --i) {
+            if (codes.get(i) == code) return values.get(i);
+        }
+        throw new AssertionError("No value for " + code);
+    }
+}
@@ -0,0 +1,68 @@
+package fr.spse.gamepad_remapper;
+
+import static fr.spse.gamepad_remapper.GamepadCodes.AXIS_X;
+import static fr.spse.gamepad_remapper.GamepadCodes.KEYCODE_BUTTON_A;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+
+public class RemapperMetricsTest {
+    private final TimedGamepadHandler handler = (code, value, eventTime, deviceId) -> {
+    };
+
+    @Test
+    public void record_countsEmittedAndSuppressedPerDevice() {
+        RemapperCore core = new RemapperCore(new HashMap<>(), new HashMap<>());
+        RemapperMetrics metrics = new RemapperMetrics();
+        core.setMetrics(metrics);
+
+        TestMotionSamples samples = new TestMotionSamples(0);
+        samples.times[0] = System.nanoTime();
+        core.handleMotionInput(samples, handler);
+        core.handleMotionInput(samples.set(AXIS_X, 0.5f), handler);
+        core.handleKeyInput(KEYCODE_BUTTON_A, true, System.nanoTime(), 2, handler);
+        core.handleKeyInput(KEYCODE_BUTTON_A, true, System.nanoTime(), 2, handler);
+
+        List<RemapperMetrics.Snapshot> snapshots = metrics.snapshot();
+        assertEquals(2, snapshots.size());
+
+        // First sample passes the 8 axis, the second one only the moved axis
+        RemapperMetrics.Snapshot motion = snapshots.get(0);
+        assertEquals(1, motion.deviceId);
+        assertEquals(2, motion.eventCount);
+        assertEquals(9, motion.emittedCount);
+        assertEquals(7, motion.suppressedCount);
+        assertEquals(2, sum(motion.latencyBuckets));
+        assertEquals(2, sum(motion.processingTimeBuckets));
+
+        RemapperMetrics.Snapshot key = snapshots.get(1);
+        assertEquals(2, key.deviceId);
+        assertEquals(1, key.emittedCount);
+        assertEquals(1, key.suppressedCount);
+        // No latency without handler call
+        assertEquals(1, sum(key.latencyBuckets));
+        assertTrue(key.eventsPerSecond > 0);
+    }
+
+    @Test
+    public void getPercentile_returnsBucketUpperBound() {
+        long[] buckets = new long[RemapperMetrics.BUCKET_COUNT];
+        buckets[10] = 90;
+        buckets[20] = 10;
+
+        assertEquals(1L << 11, RemapperMetrics.Snapshot.getPercentile(buckets, 0.5));
+        assertEquals(1L << 11, RemapperMetrics.Snapshot.getPercentile(buckets, 0.9));
+        assertEquals(1L << 21, RemapperMetrics.Snapshot.getPercentile(buckets, 0.99));
+        assertEquals(0, RemapperMetrics.Snapshot.getPercentile(new long[RemapperMetrics.BUCKET_COUNT], 0.99));
+    }
+
+    private static long sum(long[] buckets) {
+        long sum = 0;
+        for (long count : buckets) sum += count;
+        return sum;
+    }
+}
@@ -0,0 +1,97 @@
+package fr.spse.gamepad_remapper;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class StickResponseTest {
+    private final float[] out = new float[2];
+
+    @Test
+    public void radial_rescalesPastDeadzone() {
+        StickResponse response = new StickResponse.Builder()
+                .setInnerDeadzone(0.2f)
+                .setOuterDeadzone(0.8f)
+                .setCurve(ResponseCurve.exponential(2))
+                .build();
+
+        response.apply(0.1f, 0.1f, 0.5f, out);
+        assertEquals(0f, out[0], 0f);
+
+        response.apply(0.5f, 0f, 0.5f, out);
+        assertEquals(0.25f, out[0], 1e-3f);
+        assertEquals(0f, out[1], 0f);
+
+        response.apply(0f, -0.9f, 0.5f, out);
+        assertEquals(-1f, out[1], 1e-6f);
+    }
+
+    @Test
+    public void axial_snapsToAxis() {
+        StickResponse response = new StickResponse.Builder()
+                .setDeadzoneType(StickResponse.DeadzoneType.AXIAL)
+                .build();
+
+        response.apply(0.05f, 0.9f, 0.1f, out);
+        assertEquals(0f, out[0], 0f);
+        assertEquals(8 / 9f, out[1], 1e-6f);
+    }
+
+    @Test
+    public void bowtie_widensWithOtherAxis() {
+        StickResponse response = new StickResponse.Builder()
+                .setDeadzoneType(StickResponse.DeadzoneType.BOWTIE)
+                .setInnerDeadzone(0.2f)
+                .build();
+
+        // No deadzone at the center
+        response.apply(0.01f, 0f, 0f, out);
+        assertEquals(0.01f, out[0], 1e-6f);
+
+        // As wide as the inner deadzone with the other axis fully pushed
+        response.apply(0.1f, 1f, 0f, out);
+        assertEquals(0f, out[0], 0f);
+
+        response.apply(0.1f, 0.25f, 0f, out);
+        assertEquals(0.05f / 0.95f, out[0], 1e-6f);
+    }
+
+    @Test
+    public void hybrid_rescalesOnce() {
+        StickResponse.Builder builder = new StickResponse.Builder()
+                .setInnerDeadzone(0.1f)
+                .setOuterDeadzone(0.8f);
+        StickResponse hybrid = builder.setDeadzoneType(StickResponse.DeadzoneType.HYBRID).build();
+        StickResponse radial = builder.setDeadzoneType(StickResponse.DeadzoneType.RADIAL).build();
+
+        // Along an axis, same as the radial deadzone
+        hybrid.apply(0.45f, 0f, 0f, out);
+        assertEquals(0.5f, out[0], 1e-6f);
+        assertEquals(0f, out[1], 0f);
+        radial.apply(0.45f, 0f, 0f, out);
+        assertEquals(0.5f, out[0], 1e-6f);
+
+        hybrid.apply(0.05f, -0.05f, 0f, out);
+        assertEquals(0f, out[0], 0f);
+        assertEquals(0f, out[1], 0f);
+
+        hybrid.apply(-0.9f, 0f, 0f, out);
+        assertEquals(-1f, out[0], 1e-6f);
+
+        // Snaps to the axis once pushed
+        hybrid.apply(0.05f, 0.8f, 0f, out);
+        assertEquals(0f, out[0], 0f);
+        assertEquals(1f, out[1], 1e-2f);
+    }
+
+    @Test
+    public void curves_matchTheirFormula() {
+        ResponseCurve cubic = ResponseCurve.cubic(0.5f);
+        ResponseCurve points = ResponseCurve.fromPoints(new float[]{0.2f, 0.6f}, new float[]{0f, 1f});
+        for (float input = 0; input <= 1; input += 0.01f) {
+            assertEquals(0.5f * input + 0.5f * input * input * input, cubic.apply(input), 1e-4f);
+            assertEquals(Math.min(Math.max((input - 0.2f) / 0.4f, 0f), 1f), points.apply(input), 1e-2f); // Looser around the corners
+        }
+        assertEquals(0.5f, new TriggerResponse(0.2f, 0.6f, ResponseCurve.LINEAR).apply(0.4f), 1e-6f);
+    }
+}
@@ -0,0 +1,59 @@
+package fr.spse.gamepad_remapper;
+
+/**
+ * Motion samples built by hand, as a stand-in for MotionEvent
+ */
+class TestMotionSamples implements MotionSamples {
+    final float[][] values;
+    final long[] times;
+    int deviceId = 1;
+
+    /**
+     * @param historySize Amount of historical samples, on top of the current one
+     */
+    TestMotionSamples(int historySize) {
+        values = new float[historySize + 1][GamepadCodes.AXIS_GENERIC_16 + 1];
+        times = new long[historySize + 1];
+    }
+
+    /**
+     * Set the value of the axis in the current sample
+     */
+    TestMotionSamples set(int axis, float value) {
+        values[values.length - 1][axis] = value;
+        return this;
+    }
+
+    /**
+     * Fill all samples with values changing with the event index
+     */
+    void fill(int event) {
+        for (int sample = 0; sample < values.length; ++sample) {
+            float value = ((event + sample) % 8) / 8f;
+            for (int axis : GamepadCodes.SUPPORTED_AXIS) {
+                values[sample][axis] = value;
+            }
+            times[sample] = (long) event * values.length + sample;
+        }
+    }
+
+    @Override
+    public int getDeviceId() {
+        return deviceId;
+    }
+
+    @Override
+    public int getHistorySize() {
+        return values.length - 1;
+    }
+
+    @Override
+    public long getSampleTime(int sample) {
+        return times[sample == CURRENT_SAMPLE ? values.length - 1 : sample];
+    }
+
+    @Override
+    public float getAxisValue(int axis, int sample) {
+        return values[sample == CURRENT_SAMPLE ? values.length - 1 : sample][axis];
+    }
+}
@@ -22,14 +22,11 @@ import static android.view.MotionEvent.AXIS_X;
 import static android.view.MotionEvent.AXIS_Y;
 import static android.view.MotionEvent.AXIS_Z;
 
-import static fr.spse.gamepad_remapper.Remapper.SHARED_PREFERENCE_KEY;
 import static fr.spse.gamepad_remapper.Settings.SUPPORTED_AXIS;
 
 import android.app.Activity;
 import android.content.ClipData;
 import android.content.ClipboardManager;
-import android.content.Context;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.view.InputDevice;
 import android.view.KeyEvent;
@@ -90,13 +87,13 @@ public class MainActivity extends Activity implements GamepadHandler {
                 .remapRightTrigger(true);
 
         manager = new RemapperManager(this, builder);
+        manager.prefetchConnectedGamepads(this);
 
         exportButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                SharedPreferences sharedPreferences = v.getContext().getSharedPreferences(SHARED_PREFERENCE_KEY, Context.MODE_PRIVATE);
                 StringBuilder builder = new StringBuilder();
-                for (Map.Entry<String, ?> entry : sharedPreferences.getAll().entrySet()) {
+                for (Map.Entry<String, String> entry : Remapper.exportProfiles(v.getContext()).entrySet()) {
                     builder.append(entry.getKey()).append(" : ").append(entry.getValue());
                 }
 
@@ -0,0 +1,152 @@
+package fr.spse.gamepad_remapper.benchmark;
+
+import static android.view.KeyEvent.ACTION_DOWN;
+import static android.view.KeyEvent.ACTION_UP;
+import static android.view.KeyEvent.KEYCODE_BUTTON_A;
+import static android.view.KeyEvent.KEYCODE_BUTTON_B;
+import static android.view.KeyEvent.KEYCODE_BUTTON_L1;
+import static android.view.KeyEvent.KEYCODE_BUTTON_R1;
+import static android.view.KeyEvent.KEYCODE_BUTTON_SELECT;
+import static android.view.KeyEvent.KEYCODE_BUTTON_START;
+import static android.view.KeyEvent.KEYCODE_BUTTON_THUMBL;
+import static android.view.KeyEvent.KEYCODE_BUTTON_THUMBR;
+import static android.view.KeyEvent.KEYCODE_BUTTON_X;
+import static android.view.KeyEvent.KEYCODE_BUTTON_Y;
+import static android.view.KeyEvent.KEYCODE_DPAD_DOWN;
+import static android.view.KeyEvent.KEYCODE_DPAD_LEFT;
+import static android.view.KeyEvent.KEYCODE_DPAD_RIGHT;
+import static android.view.KeyEvent.KEYCODE_DPAD_UP;
+import static android.view.MotionEvent.AXIS_BRAKE;
+import static android.view.MotionEvent.AXIS_GAS;
+import static android.view.MotionEvent.AXIS_HAT_X;
+import static android.view.MotionEvent.AXIS_HAT_Y;
+import static android.view.MotionEvent.AXIS_LTRIGGER;
+import static android.view.MotionEvent.AXIS_RTRIGGER;
+import static android.view.MotionEvent.AXIS_RZ;
+import static android.view.MotionEvent.AXIS_X;
+import static android.view.MotionEvent.AXIS_Y;
+import static android.view.MotionEvent.AXIS_Z;
+
+import android.view.InputDevice;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import fr.spse.gamepad_remapper.Remapper;
+import fr.spse.gamepad_remapper.RemapperCore;
+
+/**
+ * Profiles and recorded-like input streams, shared by the benchmarks.
+ * Everything is generated upfront from a fixed seed, so runs are comparable.
+ */
+final class BenchmarkInputs {
+    /** Amount of events in each stream, a power of two */
+    static final int EVENT_COUNT = 1024;
+    static final int EVENT_MASK = EVENT_COUNT - 1;
+
+    /* Time between two samples, as reported by a 250Hz gamepad */
+    private static final long SAMPLE_INTERVAL_MS = 4;
+    private static final float STICK_NOISE = 0.01f;
+
+    static final InputDevice DEVICE = new InputDevice(7, "benchmark-gamepad",
+            InputDevice.SOURCE_GAMEPAD | InputDevice.SOURCE_JOYSTICK | InputDevice.SOURCE_DPAD, 0.1f);
+
+    private BenchmarkInputs() {
+    }
+
+    /**
+     * @return A remapper with the usual layout of a generic gamepad: swapped face buttons,
+     * triggers reported on the gas and brake axis, the dpad reported as keys.
+     */
+    static Remapper createRemapper() {
+        return new Remapper(createKeyMap(), createMotionMap());
+    }
+
+    /**
+     * @return The core of the remapper created by {@link #createRemapper()}
+     */
+    static RemapperCore createCore() {
+        return new RemapperCore(createKeyMap(), createMotionMap());
+    }
+
+    private static Map<Integer, Integer> createKeyMap() {
+        Map<Integer, Integer> keyMap = new HashMap<>();
+        keyMap.put(KEYCODE_BUTTON_A, KEYCODE_BUTTON_B);
+        keyMap.put(KEYCODE_BUTTON_B, KEYCODE_BUTTON_A);
+        keyMap.put(KEYCODE_BUTTON_X, KEYCODE_BUTTON_Y);
+        keyMap.put(KEYCODE_BUTTON_Y, KEYCODE_BUTTON_X);
+        keyMap.put(KEYCODE_BUTTON_L1, KEYCODE_BUTTON_L1);
+        keyMap.put(KEYCODE_BUTTON_R1, KEYCODE_BUTTON_R1);
+        keyMap.put(KEYCODE_BUTTON_START, KEYCODE_BUTTON_START);
+        keyMap.put(KEYCODE_BUTTON_SELECT, KEYCODE_BUTTON_SELECT);
+        keyMap.put(KEYCODE_BUTTON_THUMBL, KEYCODE_BUTTON_THUMBL);
+        keyMap.put(KEYCODE_BUTTON_THUMBR, KEYCODE_BUTTON_THUMBR);
+        keyMap.put(AXIS_HAT_X, AXIS_HAT_X);
+        keyMap.put(AXIS_HAT_Y, AXIS_HAT_Y);
+        return keyMap;
+    }
+
+    private static Map<Integer, Integer> createMotionMap() {
+        Map<Integer, Integer> motionMap = new HashMap<>();
+        motionMap.put(AXIS_X, AXIS_X);
+        motionMap.put(AXIS_Y, AXIS_Y);
+        motionMap.put(AXIS_Z, AXIS_Z);
+        motionMap.put(AXIS_RZ, AXIS_RZ);
+        motionMap.put(AXIS_HAT_X, AXIS_HAT_X);
+        motionMap.put(AXIS_HAT_Y, AXIS_HAT_Y);
+        motionMap.put(AXIS_BRAKE, AXIS_LTRIGGER);
+        motionMap.put(AXIS_GAS, AXIS_RTRIGGER);
+        return motionMap;
+    }
+
+    /**
+     * @param historySize Amount of historical samples batched inside each event
+     * @return Motion events of both sticks drawing circles with some noise, and triggers slowly pressed
+     */
+    static MotionEvent[] createMotionEvents(int historySize) {
+        Random random = new Random(42);
+        MotionEvent[] events = new MotionEvent[EVENT_COUNT];
+        int sample = 0;
+        for (int i = 0; i < EVENT_COUNT; ++i) {
+            long[] sampleTimes = new long[historySize + 1];
+            float[][] samples = new float[historySize + 1][];
+            for (int j = 0; j <= historySize; ++j, ++sample) {
+                double angle = sample * 0.05;
+                float[] values = MotionEvent.newAxisValues();
+                values[AXIS_X] = (float) Math.cos(angle) + noise(random);
+                values[AXIS_Y] = (float) Math.sin(angle) + noise(random);
+                values[AXIS_Z] = (float) Math.cos(angle * 0.5) * 0.5f + noise(random);
+                values[AXIS_RZ] = (float) Math.sin(angle * 0.5) * 0.5f + noise(random);
+                values[AXIS_GAS] = (sample % 200) / 200f;
+                values[AXIS_BRAKE] = ((sample + 100) % 200) / 200f;
+                sampleTimes[j] = sample * SAMPLE_INTERVAL_MS;
+                samples[j] = values;
+            }
+            events[i] = new MotionEvent(DEVICE, InputDevice.SOURCE_JOYSTICK, MotionEvent.ACTION_MOVE, sampleTimes, samples);
+        }
+        return events;
+    }
+
+    /**
+     * @return Key events pressing then releasing the face buttons, shoulders and dpad
+     */
+    static KeyEvent[] createKeyEvents() {
+        int[] keys = {KEYCODE_BUTTON_A, KEYCODE_BUTTON_B, KEYCODE_BUTTON_X, KEYCODE_BUTTON_Y,
+                KEYCODE_BUTTON_L1, KEYCODE_BUTTON_R1, KEYCODE_DPAD_UP, KEYCODE_DPAD_DOWN,
+                KEYCODE_DPAD_LEFT, KEYCODE_DPAD_RIGHT};
+        KeyEvent[] events = new KeyEvent[EVENT_COUNT];
+        for (int i = 0; i < EVENT_COUNT; ++i) {
+            int key = keys[(i / 2) % keys.length];
+            int action = i % 2 == 0 ? ACTION_DOWN : ACTION_UP;
+            events[i] = new KeyEvent(DEVICE, InputDevice.SOURCE_GAMEPAD, i * SAMPLE_INTERVAL_MS, action, key, 0);
+        }
+        return events;
+    }
+
+    private static float noise(Random random) {
+        return (random.nextFloat() - 0.5f) * 2 * STICK_NOISE;
+    }
+}
@@ -0,0 +1,52 @@
+package fr.spse.gamepad_remapper.benchmark;
+
+import android.view.KeyEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import fr.spse.gamepad_remapper.Remapper;
+import fr.spse.gamepad_remapper.TimedGamepadHandler;
+
+/**
+ * Cost of remapping one KeyEvent, throughput and latency percentiles.
+ * Run with the gc profiler to get the bytes allocated per event.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class KeyEventBenchmark {
+    private Remapper remapper;
+    private KeyEvent[] events;
+    private TimedGamepadHandler handler;
+    private int index = 0;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        remapper = BenchmarkInputs.createRemapper();
+        events = BenchmarkInputs.createKeyEvents();
+        handler = (code, value, eventTime, deviceId) -> {
+            blackhole.consume(code);
+            blackhole.consume(value);
+        };
+    }
+
+    @Benchmark
+    public boolean handleKeyEvent() {
+        return remapper.handleKeyEventInput(events[index++ & BenchmarkInputs.EVENT_MASK], handler);
+    }
+}
@@ -0,0 +1,86 @@
+package fr.spse.gamepad_remapper.benchmark;
+
+import android.view.MotionEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import fr.spse.gamepad_remapper.MotionSamples;
+import fr.spse.gamepad_remapper.RemapperCore;
+import fr.spse.gamepad_remapper.TimedGamepadHandler;
+
+/**
+ * Same as {@link MotionEventBenchmark}, on the core alone, without the Android event adapter
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RemapperCoreBenchmark {
+    @Param({"0", "4"})
+    public int historySize;
+
+    private RemapperCore core;
+    private MotionEvent[] events;
+    private TimedGamepadHandler handler;
+    private final EventSamples samples = new EventSamples();
+    private int index = 0;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        core = BenchmarkInputs.createCore();
+        core.setHistoricalSamplesEnabled(historySize > 0);
+        core.setDeadzones(null, BenchmarkInputs.DEVICE.getMotionRange(0, 0).getFlat());
+        events = BenchmarkInputs.createMotionEvents(historySize);
+        handler = (code, value, eventTime, deviceId) -> {
+            blackhole.consume(code);
+            blackhole.consume(value);
+        };
+    }
+
+    @Benchmark
+    public void handleMotionInput() {
+        samples.event = events[index++ & BenchmarkInputs.EVENT_MASK];
+        core.handleMotionInput(samples, handler);
+    }
+
+    private static final class EventSamples implements MotionSamples {
+        MotionEvent event;
+
+        @Override
+        public int getDeviceId() {
+            return event.getDeviceId();
+        }
+
+        @Override
+        public int getHistorySize() {
+            return event.getHistorySize();
+        }
+
+        @Override
+        public long getSampleTime(int sample) {
+            if (sample == CURRENT_SAMPLE) return event.getEventTime() * 1_000_000L;
+            return event.getHistoricalEventTime(sample) * 1_000_000L;
+        }
+
+        @Override
+        public float getAxisValue(int axis, int sample) {
+            if (sample == CURRENT_SAMPLE) return event.getAxisValue(axis);
+            return event.getHistoricalAxisValue(axis, sample);
+        }
+    }
+}
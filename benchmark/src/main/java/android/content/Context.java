@@ -0,0 +1,21 @@
+package android.content;
+
+import java.io.File;
+
+/**
+ * Stand-in for the Android class, limited to what the library uses
+ */
+public abstract class Context {
+    public static final int MODE_PRIVATE = 0;
+    public static final String INPUT_SERVICE = "input";
+
+    public abstract Context getApplicationContext();
+
+    public abstract SharedPreferences getSharedPreferences(String name, int mode);
+
+    public abstract boolean deleteSharedPreferences(String name);
+
+    public abstract Object getSystemService(String name);
+
+    public abstract File getFilesDir();
+}
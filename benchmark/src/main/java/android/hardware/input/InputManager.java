@@ -0,0 +1,19 @@
+package android.hardware.input;
+
+import android.os.Handler;
+
+/**
+ * Stand-in for the Android class, devices never change on the JVM
+ */
+public final class InputManager {
+    public void registerInputDeviceListener(InputDeviceListener listener, Handler handler) {
+    }
+
+    public interface InputDeviceListener {
+        void onInputDeviceAdded(int deviceId);
+
+        void onInputDeviceRemoved(int deviceId);
+
+        void onInputDeviceChanged(int deviceId);
+    }
+}
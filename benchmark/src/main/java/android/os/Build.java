@@ -0,0 +1,15 @@
+package android.os;
+
+/**
+ * Stand-in for the Android class, limited to what the library uses
+ */
+public final class Build {
+    public static final class VERSION {
+        public static final int SDK_INT = 32;
+    }
+
+    public static final class VERSION_CODES {
+        public static final int N = 24;
+        public static final int UPSIDE_DOWN_CAKE = 34;
+    }
+}
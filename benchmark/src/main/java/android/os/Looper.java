@@ -0,0 +1,12 @@
+package android.os;
+
+/**
+ * Stand-in for the Android class, there is no main looper on the JVM
+ */
+public final class Looper {
+    private static final Looper mainLooper = new Looper();
+
+    public static Looper getMainLooper() {
+        return mainLooper;
+    }
+}
@@ -0,0 +1,29 @@
+package android.util;
+
+import java.util.LinkedHashMap;
+
+/**
+ * Stand-in for the Android class, backed by a LinkedHashMap.
+ * Indexed accessors are linear, they are not used on the input path.
+ */
+public final class ArrayMap<K, V> extends LinkedHashMap<K, V> {
+    public ArrayMap() {
+    }
+
+    public ArrayMap(int capacity) {
+        super(capacity);
+    }
+
+    @SuppressWarnings("unchecked")
+    public K keyAt(int index) {
+        return (K) keySet().toArray()[index];
+    }
+
+    public V valueAt(int index) {
+        return get(keyAt(index));
+    }
+
+    public V removeAt(int index) {
+        return remove(keyAt(index));
+    }
+}
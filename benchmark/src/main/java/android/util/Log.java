@@ -0,0 +1,19 @@
+package android.util;
+
+/**
+ * Stand-in for the Android class, printing to the standard error
+ */
+public final class Log {
+    private Log() {
+    }
+
+    public static int e(String tag, String msg) {
+        System.err.println("E/" + tag + ": " + msg);
+        return 0;
+    }
+
+    public static int w(String tag, String msg) {
+        System.err.println("W/" + tag + ": " + msg);
+        return 0;
+    }
+}
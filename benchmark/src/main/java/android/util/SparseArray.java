@@ -0,0 +1,62 @@
+package android.util;
+
+import java.util.Arrays;
+
+/**
+ * Stand-in for the Android class: sorted int keys, looked up without boxing
+ */
+public class SparseArray<E> {
+    private int[] keys = new int[8];
+    private Object[] values = new Object[8];
+    private int size = 0;
+
+    @SuppressWarnings("unchecked")
+    public E get(int key) {
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        return index < 0 ? null : (E) values[index];
+    }
+
+    public void put(int key, E value) {
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index >= 0) {
+            values[index] = value;
+            return;
+        }
+        index = ~index;
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        keys[index] = key;
+        values[index] = value;
+        ++size;
+    }
+
+    public void remove(int key) {
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index < 0) return;
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        values[--size] = null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int keyAt(int index) {
+        return keys[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    public E valueAt(int index) {
+        return (E) values[index];
+    }
+
+    public void clear() {
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+    }
+}
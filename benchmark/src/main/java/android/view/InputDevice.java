@@ -0,0 +1,83 @@
+package android.view;
+
+/**
+ * Stand-in for the Android class, limited to what the library uses
+ */
+public final class InputDevice {
+    public static final int SOURCE_DPAD = 0x00000201;
+    public static final int SOURCE_GAMEPAD = 0x00000401;
+    public static final int SOURCE_JOYSTICK = 0x01000010;
+    public static final int KEYBOARD_TYPE_NON_ALPHABETIC = 1;
+    public static final int KEYBOARD_TYPE_ALPHABETIC = 2;
+
+    private final int id;
+    private final String descriptor;
+    private final int sources;
+    private final float flat;
+
+    /**
+     * @param flat The flat area reported for every axis
+     */
+    public InputDevice(int id, String descriptor, int sources, float flat) {
+        this.id = id;
+        this.descriptor = descriptor;
+        this.sources = sources;
+        this.flat = flat;
+    }
+
+    public static InputDevice getDevice(int id) {
+        return null;
+    }
+
+    public static int[] getDeviceIds() {
+        return new int[0];
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getDescriptor() {
+        return descriptor;
+    }
+
+    public boolean isVirtual() {
+        return false;
+    }
+
+    public int getKeyboardType() {
+        return KEYBOARD_TYPE_NON_ALPHABETIC;
+    }
+
+    public boolean supportsSource(int source) {
+        return (sources & source) == source;
+    }
+
+    public MotionRange getMotionRange(int axis, int source) {
+        return new MotionRange(flat);
+    }
+
+    public MotionRange getMotionRange(int axis) {
+        return new MotionRange(flat);
+    }
+
+    public static final class MotionRange {
+        private final float flat;
+
+        MotionRange(float flat) {
+            this.flat = flat;
+        }
+
+        public float getFlat() {
+            return flat;
+        }
+
+        public float getMin() {
+            return -1;
+        }
+
+        public float getMax() {
+            return 1;
+        }
+    }
+}
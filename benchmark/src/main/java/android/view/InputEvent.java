@@ -0,0 +1,40 @@
+package android.view;
+
+/**
+ * Stand-in for the Android class, limited to what the library uses
+ */
+public abstract class InputEvent {
+    final InputDevice device;
+    final int source;
+    long eventTime;
+
+    InputEvent(InputDevice device, int source, long eventTime) {
+        this.device = device;
+        this.source = source;
+        this.eventTime = eventTime;
+    }
+
+    public final InputDevice getDevice() {
+        return device;
+    }
+
+    public final int getDeviceId() {
+        return device == null ? -1 : device.getId();
+    }
+
+    public final int getSource() {
+        return source;
+    }
+
+    public final boolean isFromSource(int source) {
+        return (this.source & source) == source;
+    }
+
+    public long getEventTime() {
+        return eventTime;
+    }
+
+    public long getEventTimeNanos() {
+        return eventTime * 1_000_000L;
+    }
+}
@@ -0,0 +1,56 @@
+package android.view;
+
+/**
+ * Stand-in for the Android class, limited to what the library uses
+ */
+public class KeyEvent extends InputEvent {
+    public static final int ACTION_DOWN = 0;
+    public static final int ACTION_UP = 1;
+    public static final int ACTION_MULTIPLE = 2;
+
+    public static final int KEYCODE_UNKNOWN = 0;
+    public static final int KEYCODE_DPAD_UP = 19;
+    public static final int KEYCODE_DPAD_DOWN = 20;
+    public static final int KEYCODE_DPAD_LEFT = 21;
+    public static final int KEYCODE_DPAD_RIGHT = 22;
+    public static final int KEYCODE_DPAD_CENTER = 23;
+    public static final int KEYCODE_BUTTON_A = 96;
+    public static final int KEYCODE_BUTTON_B = 97;
+    public static final int KEYCODE_BUTTON_C = 98;
+    public static final int KEYCODE_BUTTON_X = 99;
+    public static final int KEYCODE_BUTTON_Y = 100;
+    public static final int KEYCODE_BUTTON_Z = 101;
+    public static final int KEYCODE_BUTTON_L1 = 102;
+    public static final int KEYCODE_BUTTON_R1 = 103;
+    public static final int KEYCODE_BUTTON_L2 = 104;
+    public static final int KEYCODE_BUTTON_R2 = 105;
+    public static final int KEYCODE_BUTTON_THUMBL = 106;
+    public static final int KEYCODE_BUTTON_THUMBR = 107;
+    public static final int KEYCODE_BUTTON_START = 108;
+    public static final int KEYCODE_BUTTON_SELECT = 109;
+    public static final int KEYCODE_BUTTON_MODE = 110;
+    public static final int KEYCODE_BUTTON_16 = 203;
+
+    private final int action;
+    private final int keyCode;
+    private final int repeatCount;
+
+    public KeyEvent(InputDevice device, int source, long eventTime, int action, int keyCode, int repeatCount) {
+        super(device, source, eventTime);
+        this.action = action;
+        this.keyCode = keyCode;
+        this.repeatCount = repeatCount;
+    }
+
+    public final int getAction() {
+        return action;
+    }
+
+    public final int getKeyCode() {
+        return keyCode;
+    }
+
+    public final int getRepeatCount() {
+        return repeatCount;
+    }
+}
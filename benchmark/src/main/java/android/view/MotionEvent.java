@@ -0,0 +1,70 @@
+package android.view;
+
+/**
+ * Stand-in for the Android class, limited to what the library uses.
+ * Axis values are stored per sample, the last sample being the current one.
+ */
+public final class MotionEvent extends InputEvent {
+    public static final int ACTION_MOVE = 2;
+
+    public static final int AXIS_X = 0;
+    public static final int AXIS_Y = 1;
+    public static final int AXIS_Z = 11;
+    public static final int AXIS_RX = 12;
+    public static final int AXIS_RY = 13;
+    public static final int AXIS_RZ = 14;
+    public static final int AXIS_HAT_X = 15;
+    public static final int AXIS_HAT_Y = 16;
+    public static final int AXIS_LTRIGGER = 17;
+    public static final int AXIS_RTRIGGER = 18;
+    public static final int AXIS_THROTTLE = 19;
+    public static final int AXIS_GAS = 22;
+    public static final int AXIS_BRAKE = 23;
+    public static final int AXIS_GENERIC_16 = 47;
+
+    private static final int AXIS_COUNT = AXIS_GENERIC_16 + 1;
+
+    private final int action;
+    /* Axis values of each sample */
+    private final float[][] samples;
+    private final long[] sampleTimes;
+
+    /**
+     * @param sampleTimes Time of each sample, in chronological order
+     * @param samples     Axis values of each sample, indexed by axis id
+     */
+    public MotionEvent(InputDevice device, int source, int action, long[] sampleTimes, float[][] samples) {
+        super(device, source, sampleTimes[sampleTimes.length - 1]);
+        this.action = action;
+        this.sampleTimes = sampleTimes;
+        this.samples = samples;
+    }
+
+    public static float[] newAxisValues() {
+        return new float[AXIS_COUNT];
+    }
+
+    public int getAction() {
+        return action;
+    }
+
+    public float getAxisValue(int axis) {
+        return samples[samples.length - 1][axis];
+    }
+
+    public int getHistorySize() {
+        return samples.length - 1;
+    }
+
+    public float getHistoricalAxisValue(int axis, int pos) {
+        return samples[pos][axis];
+    }
+
+    public long getHistoricalEventTime(int pos) {
+        return sampleTimes[pos];
+    }
+
+    public long getHistoricalEventTimeNanos(int pos) {
+        return sampleTimes[pos] * 1_000_000L;
+    }
+}
@@ -0,0 +1,31 @@
+package fr.spse.gamepad_remapper;
+
+import static android.view.InputDevice.KEYBOARD_TYPE_ALPHABETIC;
+import static android.view.InputDevice.SOURCE_DPAD;
+import static android.view.InputDevice.SOURCE_GAMEPAD;
+
+import android.view.InputDevice;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+
+/**
+ * Stand-in for the library view, only keeping the event filters the Remapper relies on.
+ * Must be kept in sync with the library.
+ */
+public class RemapperView {
+    public static boolean isGamepadMotionEvent(MotionEvent event) {
+        return event.isFromSource(InputDevice.SOURCE_JOYSTICK) && event.getAction() == MotionEvent.ACTION_MOVE;
+    }
+
+    private static boolean isDpadKeyEvent(KeyEvent event) {
+        return (event.isFromSource(SOURCE_GAMEPAD) && event.isFromSource(SOURCE_DPAD))
+                && event.getDevice().getKeyboardType() != KEYBOARD_TYPE_ALPHABETIC;
+    }
+
+    public static boolean isGamepadKeyEvent(KeyEvent event) {
+        boolean isGamepad = event.isFromSource(SOURCE_GAMEPAD)
+                || (event.getDevice() != null && event.getDevice().supportsSource(SOURCE_GAMEPAD));
+
+        return isGamepad || isDpadKeyEvent(event);
+    }
+}